@@ -54,6 +54,22 @@ public class FileHashDriver {
         }
     }
 
+    /**
+     * Method to generate SHA hash of an in-memory buffer. The algorithm is used is SHA-256.
+     * May return null if the SHA-256 algorithm is not found in the security provider.
+     * @param data bytes to generate SHA hash
+     */
+    public static @Nullable String generateSHA256(byte[] data) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return toHex(md.digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            ColoredConsoleOutput.printRedText(e.toString());
+
+            return null;
+        }
+    }
+
     protected static @NotNull String generateHash(String filePath, String algorithm) throws NoSuchAlgorithmException {
         File f = new File(PathResolver.convertAndCleanPaths(filePath));
         byte[] bytes = new byte[4096];
@@ -69,9 +85,12 @@ public class FileHashDriver {
         } catch (IOException e) {
             throw new NoSuchAlgorithmException("Error generating MD5 for: " + e.getMessage());
         }
-        byte[] hashed_bytes = md.digest();
+        return toHex(md.digest());
+    }
+
+    private static @NotNull String toHex(byte[] hashedBytes) {
         StringBuilder sb = new StringBuilder();
-        for (byte hashedByte : hashed_bytes) {
+        for (byte hashedByte : hashedBytes) {
             sb.append(String.format("%02x", hashedByte));
         }
         return sb.toString();
@@ -0,0 +1,140 @@
+package com.eazeeditor.searchengineapi;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author nurujjamanpollob
+ * API keys created by {@link ApiKeyService}, per project and display name, kept as a JSON file so a key is reused
+ * across runs instead of a new one being created every time. The file holds the key strings, it is only readable by
+ * its owner where the file system supports it.
+ */
+public class ApiKeyRegistry {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Type ENTRIES_TYPE = new TypeToken<LinkedHashMap<String, Entry>>() {}.getType();
+
+    private final Path file;
+    private final Map<String, Entry> entries;
+
+    private ApiKeyRegistry(Path file, Map<String, Entry> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads a registry, or returns an empty one if the file does not exist yet.
+     * @param file The registry file.
+     * @return The registry.
+     * @throws IOException If an existing registry cannot be read.
+     */
+    public static ApiKeyRegistry load(Path file) throws IOException {
+        Map<String, Entry> entries = null;
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                entries = GSON.fromJson(reader, ENTRIES_TYPE);
+            }
+        }
+        return new ApiKeyRegistry(file, entries != null ? entries : new LinkedHashMap<>());
+    }
+
+    private static String key(String projectId, String displayName) {
+        return projectId + "/" + displayName;
+    }
+
+    /**
+     * @return The key of the project with the display name, or null if none is registered.
+     */
+    public synchronized Entry get(String projectId, String displayName) {
+        return entries.get(key(projectId, displayName));
+    }
+
+    public synchronized void put(String projectId, Entry entry) {
+        entries.put(key(projectId, entry.getDisplayName()), entry);
+    }
+
+    /**
+     * Forgets a key, for example after it was deleted in the Google Cloud Console.
+     */
+    public synchronized void remove(String projectId, String displayName) {
+        entries.remove(key(projectId, displayName));
+    }
+
+    /**
+     * Writes the registry through a temporary file, so an interrupted run never leaves a truncated registry.
+     * @throws IOException If the registry cannot be written.
+     */
+    public synchronized void save() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        // Left over by a crash, its permissions are not known
+        Files.deleteIfExists(temp);
+        try {
+            // Owner-only from creation, the keys are never readable by others, not even until a chmod
+            Files.createFile(temp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system, the file inherits the permissions of its directory
+            Files.createFile(temp);
+        }
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            GSON.toJson(entries, ENTRIES_TYPE, writer);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * A registered API key.
+     */
+    public static class Entry {
+        private String name;
+        private String displayName;
+        private String keyString;
+        private long registeredAtMillis;
+
+        public Entry() {
+        }
+
+        public Entry(String name, String displayName, String keyString, long registeredAtMillis) {
+            this.name = name;
+            this.displayName = displayName;
+            this.keyString = keyString;
+            this.registeredAtMillis = registeredAtMillis;
+        }
+
+        /**
+         * @return The resource name of the key, such as {@code projects/123/locations/global/keys/abc}.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public String getKeyString() {
+            return keyString;
+        }
+
+        public long getRegisteredAtMillis() {
+            return registeredAtMillis;
+        }
+    }
+}
@@ -2,16 +2,19 @@ package com.eazeeditor.searchengineapi;
 
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.services.apikeys.v2.ApiKeysService;
 import com.google.api.services.apikeys.v2.model.Operation;
 import com.google.api.services.apikeys.v2.model.V2ApiTarget;
 import com.google.api.services.apikeys.v2.model.V2Key;
+import com.google.api.services.apikeys.v2.model.V2ListKeysResponse;
 import com.google.api.services.apikeys.v2.model.V2Restrictions;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author nurujjamanpollob
@@ -19,6 +22,151 @@ import java.util.Collections;
  */
 public class ApiKeyService {
 
+    /**
+     * Display name of the keys created by this service, used to find them again.
+     */
+    public static final String DEFAULT_KEY_DISPLAY_NAME = "EazeEditor Search API Key";
+
+    private final GoogleClientFactory clientFactory;
+    private String rootUrl;
+    private OperationWaiter operationWaiter = new OperationWaiter();
+    private ApiKeyRegistry keyRegistry;
+    // Per project, so concurrent callers don't both create a key
+    private final Map<String, Object> projectLocks = new ConcurrentHashMap<>();
+
+    public ApiKeyService() {
+        this(GoogleClientFactory.getDefault());
+    }
+
+    /**
+     * @param transport The HTTP transport, shared with other services to reuse its connections.
+     */
+    public ApiKeyService(HttpTransport transport) {
+        this(new GoogleClientFactory(transport));
+    }
+
+    /**
+     * @param clientFactory The factory of the Google API clients, shared with other services to reuse its clients and connections.
+     */
+    public ApiKeyService(GoogleClientFactory clientFactory) {
+        this.clientFactory = clientFactory;
+    }
+
+    /**
+     * Points the service to another endpoint than Google's, such as a proxy in front of the API Keys API.
+     * @param rootUrl The root URL, such as {@code http://localhost:8080/}, or null for the Google endpoint.
+     */
+    public void setRootUrl(String rootUrl) {
+        this.rootUrl = rootUrl;
+    }
+
+    /**
+     * @param operationWaiter The waiter used while the API Keys API is not usable yet.
+     */
+    public void setOperationWaiter(OperationWaiter operationWaiter) {
+        this.operationWaiter = operationWaiter;
+    }
+
+    /**
+     * Enables the local key registry, {@link #getOrCreateRestrictedApiKey(Credential, String)} then serves known keys
+     * without calling the API Keys API.
+     * @param registryPath The registry file, created on first use. It holds key strings, keep it private.
+     * @throws IOException If an existing registry cannot be read.
+     */
+    public void setKeyRegistry(String registryPath) throws IOException {
+        this.keyRegistry = registryPath != null ? ApiKeyRegistry.load(Paths.get(registryPath)) : null;
+    }
+
+    /**
+     * Returns the restricted API key of the project, creating it only if the project has none yet.
+     * The key is looked up in the local registry first, then by its display name in the project, so repeated runs
+     * reuse the same key instead of creating a new one each time.
+     *
+     * @param credential Authorized Credential object.
+     * @param projectId  The ID of the Google Cloud project.
+     * @return The key string of the API key.
+     * @throws IOException          If an I/O error occurs, or if the key creation fails.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public String getOrCreateRestrictedApiKey(Credential credential, String projectId) throws IOException, InterruptedException {
+        synchronized (projectLocks.computeIfAbsent(projectId, k -> new Object())) {
+            if (keyRegistry != null) {
+                ApiKeyRegistry.Entry entry = keyRegistry.get(projectId, DEFAULT_KEY_DISPLAY_NAME);
+                if (entry != null) {
+                    System.out.println("Using registered API key " + entry.getName());
+                    return entry.getKeyString();
+                }
+            }
+            String keyName = findApiKeyByDisplayName(credential, projectId, DEFAULT_KEY_DISPLAY_NAME);
+            String keyString;
+            if (keyName != null) {
+                System.out.println("Reusing existing API key " + keyName);
+                keyString = getKeyString(credential, keyName);
+            } else {
+                Map<String, Object> key = awaitKey(credential, createRestrictedApiKey(credential, projectId));
+                keyName = (String) key.get("name");
+                keyString = (String) key.get("keyString");
+            }
+            if (keyRegistry != null) {
+                keyRegistry.put(projectId, new ApiKeyRegistry.Entry(keyName, DEFAULT_KEY_DISPLAY_NAME, keyString, System.currentTimeMillis()));
+                keyRegistry.save();
+            }
+            return keyString;
+        }
+    }
+
+    /**
+     * Creates a new restricted API key for the Custom Search API and waits for it.
+     *
+     * @param credential Authorized Credential object.
+     * @param projectId  The ID of the Google Cloud project.
+     * @return The key string of the created API key.
+     * @throws IOException          If an I/O error occurs, or if the key creation fails.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public String createRestrictedApiKeyString(Credential credential, String projectId) throws IOException, InterruptedException {
+        return awaitKeyString(credential, createRestrictedApiKey(credential, projectId));
+    }
+
+    /**
+     * Looks up an API key of the project by its display name, reading every page of the key list.
+     *
+     * @param credential  Authorized Credential object.
+     * @param projectId   The ID of the Google Cloud project.
+     * @param displayName The display name of the key.
+     * @return The resource name of the key, or null if the project has no key with this display name.
+     * @throws IOException If an I/O error occurs.
+     */
+    public String findApiKeyByDisplayName(Credential credential, String projectId, String displayName) throws IOException {
+        ApiKeysService service = buildClient(credential);
+        String parent = String.format("projects/%s/locations/global", projectId);
+        String pageToken = null;
+        do {
+            V2ListKeysResponse response = service.projects().locations().keys().list(parent)
+                    .setPageToken(pageToken)
+                    .execute();
+            if (response.getKeys() != null) {
+                for (V2Key key : response.getKeys()) {
+                    if (displayName.equals(key.getDisplayName()) && key.getDeleteTime() == null) {
+                        return key.getName();
+                    }
+                }
+            }
+            pageToken = response.getNextPageToken();
+        } while (pageToken != null && !pageToken.isEmpty());
+        return null;
+    }
+
+    /**
+     * @param credential Authorized Credential object.
+     * @param keyName    The resource name of the key, as returned by {@link #findApiKeyByDisplayName(Credential, String, String)}.
+     * @return The key string of the API key.
+     * @throws IOException If an I/O error occurs.
+     */
+    public String getKeyString(Credential credential, String keyName) throws IOException {
+        return buildClient(credential).projects().locations().keys().getKeyString(keyName).execute().getKeyString();
+    }
+
     /**
      * Creates a new restricted API key for the Custom Search API.
      *
@@ -29,43 +177,78 @@ public class ApiKeyService {
      * @throws InterruptedException If the thread is interrupted while waiting.
      */
     public String createRestrictedApiKey(Credential credential, String projectId) throws IOException, InterruptedException {
-        ApiKeysService service = new ApiKeysService.Builder(
-                new NetHttpTransport(),
-                GsonFactory.getDefaultInstance(),
-                credential)
-                .setApplicationName("Eaze Editor")
-                .build();
+        ApiKeysService service = buildClient(credential);
 
         V2Key key = new V2Key()
-                .setDisplayName("EazeEditor Search API Key")
+                .setDisplayName(DEFAULT_KEY_DISPLAY_NAME)
                 .setRestrictions(new V2Restrictions()
                         .setApiTargets(Collections.singletonList(new V2ApiTarget()
                                 .setService("customsearch.googleapis.com"))));
 
         String parent = String.format("projects/%s/locations/global", projectId);
 
-        int maxRetries = 6;
-        long delay = 5000; // Start with 5 seconds
-
-        for (int i = 0; i < maxRetries; i++) {
+        // The API Keys API may still be propagating right after it was enabled
+        System.out.println("Attempting to create API key...");
+        String operationName = operationWaiter.await("Starting API key creation", () -> {
             try {
-                System.out.println("Attempting to create API key...");
-                Operation operation = service.projects().locations().keys().create(parent, key).execute();
-                System.out.println("API key creation operation started: " + operation.getName());
-                return operation.getName();
+                return service.projects().locations().keys().create(parent, key).execute().getName();
             } catch (GoogleJsonResponseException e) {
-                if (e.getStatusCode() == 403 && e.getDetails() != null && e.getDetails().getMessage().contains("SERVICE_DISABLED")) {
-                    if (i == maxRetries - 1) {
-                        throw new IOException("Failed to create API key due to SERVICE_DISABLED after multiple retries.", e);
-                    }
-                    System.out.println("API service not ready, retrying in " + delay / 1000 + " seconds...");
-                    Thread.sleep(delay);
-                    delay *= 2; // Exponential backoff
-                } else {
-                    throw e; // Re-throw other errors
+                if (OperationWaiter.isServiceDisabled(e)) {
+                    System.out.println("API service not ready, retrying...");
+                    return null;
                 }
+                throw e; // Re-throw other errors
             }
+        });
+        System.out.println("API key creation operation started: " + operationName);
+        return operationName;
+    }
+
+    /**
+     * Waits for a key creation operation started by {@link #createRestrictedApiKey(Credential, String)} to complete.
+     *
+     * @param credential    Authorized Credential object.
+     * @param operationName The name of the key creation operation.
+     * @return The key string of the created API key.
+     * @throws IOException          If an I/O error occurs, if the operation failed ({@link KeyCreationFailedException}),
+     *                              or if it is not done before the deadline of the waiter.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public String awaitKeyString(Credential credential, String operationName) throws IOException, InterruptedException {
+        return (String) awaitKey(credential, operationName).get("keyString");
+    }
+
+    /**
+     * @return The created key, as the response of the operation.
+     */
+    private Map<String, Object> awaitKey(Credential credential, String operationName) throws IOException, InterruptedException {
+        ApiKeysService service = buildClient(credential);
+        Operation operation = operationWaiter.await("API key creation", () -> {
+            Operation polled = service.operations().get(operationName).execute();
+            return Boolean.TRUE.equals(polled.getDone()) ? polled : null;
+        });
+        if (operation.getError() != null) {
+            throw new KeyCreationFailedException("Error creating API key: " + operation.getError().getMessage());
+        }
+        // The response of the operation is the created key
+        Map<String, Object> key = operation.getResponse();
+        if (key == null || !(key.get("keyString") instanceof String)) {
+            throw new IOException("API key creation " + operationName + " completed without a key string");
+        }
+        return key;
+    }
+
+    private ApiKeysService buildClient(Credential credential) {
+        return clientFactory.apiKeys(credential, rootUrl);
+    }
+
+    /**
+     * Raised when a key creation operation completed with an error. Waiting for the same operation again always fails,
+     * the key has to be created again.
+     */
+    public static final class KeyCreationFailedException extends IOException {
+        KeyCreationFailedException(String message) {
+            super(message);
         }
-        throw new IOException("Failed to initiate API key creation after multiple retries.");
     }
 }
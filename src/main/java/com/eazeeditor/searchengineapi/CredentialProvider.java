@@ -0,0 +1,191 @@
+package com.eazeeditor.searchengineapi;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author nurujjamanpollob
+ * Provides a Credential to server processes without any interactive step. The credential is loaded once, either from
+ * the refresh token stored by a previous {@link GoogleAuthService#authenticateUser(String)}, or from a service account
+ * key, and its access token is refreshed in the background shortly before it expires. Requests therefore never wait
+ * for a browser consent or for a token refresh.
+ */
+public class CredentialProvider implements AutoCloseable {
+
+    /**
+     * Default time before the expiry of the access token at which it is refreshed.
+     */
+    public static final Duration DEFAULT_REFRESH_MARGIN = Duration.ofMinutes(5);
+
+    // Delay before retrying a failed refresh, the current token may still be valid for a while
+    private static final long RETRY_DELAY_MILLIS = 30_000;
+    // Refresh interval when the token endpoint does not report an expiry
+    private static final long DEFAULT_REFRESH_INTERVAL_MILLIS = Duration.ofMinutes(30).toMillis();
+
+    private final Credential credential;
+    private final String description;
+    private final ScheduledExecutorService scheduler;
+    private volatile long refreshMarginMillis = DEFAULT_REFRESH_MARGIN.toMillis();
+    private volatile boolean closed;
+
+    private CredentialProvider(Credential credential, String description) throws IOException {
+        this.credential = credential;
+        this.description = description;
+        // A token that is missing or about to expire is refreshed now, later refreshes happen in the background
+        Long expiresIn = credential.getExpiresInSeconds();
+        if (credential.getAccessToken() == null || expiresIn == null || expiresIn * 1000 <= refreshMarginMillis) {
+            refresh();
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "credential-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleRefresh(nextRefreshDelayMillis());
+    }
+
+    /**
+     * Loads the credential stored for the default user by the installed app flow of the client.
+     * @param clientSecretsJsonPath The path to the client secrets JSON file.
+     * @return A provider of the stored credential.
+     * @throws IOException           If the client secrets or the credential store cannot be read, or the token cannot be refreshed.
+     * @throws IllegalStateException If no credential is stored, authenticate once interactively with {@link GoogleAuthService}.
+     */
+    public static CredentialProvider fromStoredCredential(String clientSecretsJsonPath) throws IOException {
+        return fromStoredCredential(GoogleAuthService.loadClientSecrets(clientSecretsJsonPath), GoogleAuthService.DEFAULT_USER_ID);
+    }
+
+    /**
+     * Loads the credential stored by the installed app flow of the client.
+     * @param clientSecrets The client secrets of the OAuth 2.0 client.
+     * @param userId        The key of the user in the credential store.
+     * @return A provider of the stored credential.
+     * @throws IOException           If the credential store cannot be read, or the token cannot be refreshed.
+     * @throws IllegalStateException If no credential is stored, authenticate once interactively with {@link GoogleAuthService}.
+     */
+    public static CredentialProvider fromStoredCredential(GoogleClientSecrets clientSecrets, String userId) throws IOException {
+        Credential credential = GoogleAuthService.getFlow(clientSecrets).loadCredential(userId);
+        if (credential == null || credential.getRefreshToken() == null) {
+            throw new IllegalStateException("No stored credential for '" + userId + "' in " + GoogleAuthService.CREDENTIALS_DIRECTORY
+                    + ", authenticate once with GoogleAuthService.authenticateUser");
+        }
+        return new CredentialProvider(credential, "stored credential of " + userId);
+    }
+
+    /**
+     * Loads a service account key, the service account needs access to the projects it manages.
+     * @param serviceAccountJsonPath The path to the service account key JSON file.
+     * @return A provider of the service account credential.
+     * @throws IOException If the key cannot be read, or the token cannot be obtained.
+     */
+    @SuppressWarnings("deprecation") // GoogleCredential is the service account implementation of Credential
+    public static CredentialProvider fromServiceAccount(String serviceAccountJsonPath) throws IOException {
+        GoogleCredential credential;
+        try (InputStream in = Files.newInputStream(Paths.get(serviceAccountJsonPath))) {
+            credential = GoogleCredential.fromStream(in,
+                    GoogleClientFactory.getDefault().getTransport(),
+                    GoogleClientFactory.getDefault().getJsonFactory());
+        }
+        if (credential.getServiceAccountId() == null) {
+            throw new IllegalArgumentException(serviceAccountJsonPath + " is not a service account key");
+        }
+        return new CredentialProvider(credential.createScoped(GoogleAuthService.SCOPES),
+                "service account " + credential.getServiceAccountId());
+    }
+
+    /**
+     * Loads the service account key named by GOOGLE_APPLICATION_CREDENTIALS if it is set, otherwise the stored
+     * credential of the client named by GOOGLE_CLIENT_ID and GOOGLE_CLIENT_SECRET.
+     * @return A provider of the credential.
+     * @throws IOException           If the credential cannot be loaded or refreshed.
+     * @throws IllegalStateException If none of the environment variables are set, or no credential is stored.
+     */
+    public static CredentialProvider fromEnvironment() throws IOException {
+        String serviceAccountKey = System.getenv("GOOGLE_APPLICATION_CREDENTIALS");
+        if (serviceAccountKey != null && !serviceAccountKey.isEmpty()) {
+            return fromServiceAccount(serviceAccountKey);
+        }
+        String clientId = System.getenv("GOOGLE_CLIENT_ID");
+        String clientSecret = System.getenv("GOOGLE_CLIENT_SECRET");
+        if (clientId == null || clientId.isEmpty() || clientSecret == null || clientSecret.isEmpty()) {
+            throw new IllegalStateException("Either 'GOOGLE_APPLICATION_CREDENTIALS' or 'GOOGLE_CLIENT_ID' and 'GOOGLE_CLIENT_SECRET' environment variables must be set.");
+        }
+        GoogleClientSecrets.Details details = new GoogleClientSecrets.Details()
+                .setClientId(clientId)
+                .setClientSecret(clientSecret)
+                .setAuthUri("https://accounts.google.com/o/oauth2/auth")
+                .setTokenUri("https://oauth2.googleapis.com/token");
+        return fromStoredCredential(new GoogleClientSecrets().setInstalled(details), GoogleAuthService.DEFAULT_USER_ID);
+    }
+
+    /**
+     * @return the credential, whose access token is kept fresh in the background. It can be shared by all services
+     * and threads.
+     */
+    public Credential getCredential() {
+        if (closed) {
+            throw new IllegalStateException("Credential provider is closed");
+        }
+        return credential;
+    }
+
+    /**
+     * @param refreshMargin The time before the expiry of the access token at which it is refreshed.
+     */
+    public void setRefreshMargin(Duration refreshMargin) {
+        if (refreshMargin == null || refreshMargin.isNegative()) {
+            throw new IllegalArgumentException("refreshMargin cannot be null or negative");
+        }
+        this.refreshMarginMillis = refreshMargin.toMillis();
+    }
+
+    /**
+     * Stops the background refresh. The credential keeps working, its token is then refreshed on the request path.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+    }
+
+    private void refresh() throws IOException {
+        if (!credential.refreshToken()) {
+            throw new IOException("Failed to refresh the access token of the " + description);
+        }
+    }
+
+    private long nextRefreshDelayMillis() {
+        Long expiresIn = credential.getExpiresInSeconds();
+        if (expiresIn == null) {
+            return DEFAULT_REFRESH_INTERVAL_MILLIS;
+        }
+        return Math.max(0, expiresIn * 1000 - refreshMarginMillis);
+    }
+
+    private void scheduleRefresh(long delayMillis) {
+        if (closed) {
+            return;
+        }
+        scheduler.schedule(() -> {
+            long nextDelayMillis;
+            try {
+                refresh();
+                nextDelayMillis = nextRefreshDelayMillis();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Background refresh of the " + description + " failed, retrying: " + e.getMessage());
+                nextDelayMillis = RETRY_DELAY_MILLIS;
+            }
+            scheduleRefresh(Math.max(nextDelayMillis, 1000));
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -1,5 +1,7 @@
 package com.eazeeditor.searchengineapi;
 
+import com.eazeeditor.searchengineapi.search.SingleFlight;
+import com.eazeeditor.searchengineapi.usage.UsageRecorder;
 import com.google.api.services.customsearch.v1.CustomSearchAPI;
 import com.google.api.services.customsearch.v1.model.Result;
 import com.google.api.services.customsearch.v1.model.Search;
@@ -10,6 +12,7 @@ import org.jsoup.select.Elements;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -17,38 +20,88 @@ import java.util.List;
  * Custom Search Client to interact with Google Custom Search API.
  */
 public class CustomSearchClient {
+
+    // Shared by all instances, concurrent searches of the same query in the same search engine run once
+    private static final SingleFlight<Search> IN_FLIGHT_SEARCHES = new SingleFlight<>();
     
     private final String apiKey;
     private final String searchEngineId;
+    private final CustomSearchAPI customSearchAPI;
+    private volatile UsageRecorder usageRecorder;
+    private volatile boolean coalesceQueries = true;
     
     public CustomSearchClient(String apiKey, String searchEngineId) {
+        this(apiKey, searchEngineId, GoogleClientFactory.getDefault());
+    }
+
+    /**
+     * @param apiKey         The API key.
+     * @param searchEngineId The ID of the programmable search engine.
+     * @param clientFactory  The factory of the Custom Search client, whose connections are reused across searches.
+     */
+    public CustomSearchClient(String apiKey, String searchEngineId, GoogleClientFactory clientFactory) {
         this.apiKey = apiKey;
         this.searchEngineId = searchEngineId;
+        this.customSearchAPI = clientFactory.customSearch(null);
     }
     
+    /**
+     * @param usageRecorder The recorder counting the requests, failures and latencies of this client, it can be
+     *                      shared by many clients. Null stops recording.
+     */
+    public void setUsageRecorder(UsageRecorder usageRecorder) {
+        this.usageRecorder = usageRecorder;
+    }
+
+    /**
+     * Sets whether a search joins a search of the same query in the same search engine already running in this
+     * process, in any client with the same API key, instead of sending its own request. Queries are compared ignoring extra whitespace.
+     * Enabled by default.
+     * @param coalesceQueries True to share concurrent identical searches.
+     */
+    public void setCoalesceQueries(boolean coalesceQueries) {
+        this.coalesceQueries = coalesceQueries;
+    }
+
+    /**
+     * Searches the query. A search of a query that is already being searched concurrently waits for that search and
+     * gets a copy of its result, see {@link #setCoalesceQueries(boolean)}.
+     * @param query The search query.
+     * @return The search result, or null if the request failed.
+     */
     public Search executeSearch(String query) {
+        if (!coalesceQueries) {
+            return requestSearch(query);
+        }
+        Search shared = IN_FLIGHT_SEARCHES.execute(Arrays.asList(apiKey, searchEngineId, SingleFlight.normalize(query)),
+                () -> requestSearch(query));
+        // Every caller gets its own copy of the shared result
+        return shared != null ? shared.clone() : null;
+    }
+
+    private Search requestSearch(String query) {
         // use Custom Search API to perform search with the given query
         // and return the Search results
         
+        long startedAt = System.nanoTime();
+        Search search = null;
         try {
-            com.google.api.client.http.HttpTransport httpTransport = new com.google.api.client.http.javanet.NetHttpTransport();
-            com.google.api.client.json.JsonFactory jsonFactory = new com.google.api.client.json.gson.GsonFactory();
-            
-            CustomSearchAPI customSearchAPI = new CustomSearchAPI.Builder(httpTransport, jsonFactory, null)
-                    .setApplicationName("EazeEditorSearchEngine")
-                    .build();
-            
             CustomSearchAPI.Cse.List request = customSearchAPI.cse().list();
             request.setKey(apiKey);
             request.setCx(searchEngineId);
             request.setQ(query);
             
-            return request.execute();
+            search = request.execute();
         } catch (java.io.IOException e) {
             e.printStackTrace();
             
+        } finally {
+            UsageRecorder recorder = usageRecorder;
+            if (recorder != null) {
+                recorder.record(apiKey, searchEngineId, (System.nanoTime() - startedAt) / 1_000_000, search != null);
+            }
         }
-        return null; // return null in case of error
+        return search; // null in case of error
     }
 
     /**
@@ -1,9 +1,11 @@
 package com.eazeeditor.searchengineapi;
 
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.services.apikeys.v2.ApiKeysService;
 import com.google.api.services.serviceusage.v1.ServiceUsage;
+import com.google.api.services.serviceusage.v1.model.BatchEnableServicesRequest;
 import com.google.api.services.serviceusage.v1.model.Operation;
 
 import java.io.IOException;
@@ -16,50 +18,105 @@ import java.util.List;
  */
 public class GoogleApiService {
 
+    private final GoogleClientFactory clientFactory;
+    private String rootUrl;
+    private OperationWaiter operationWaiter = new OperationWaiter();
+
+    public GoogleApiService() {
+        this(GoogleClientFactory.getDefault());
+    }
+
+    /**
+     * @param transport The HTTP transport, shared with other services to reuse its connections.
+     */
+    public GoogleApiService(HttpTransport transport) {
+        this(new GoogleClientFactory(transport));
+    }
+
+    /**
+     * @param clientFactory The factory of the Google API clients, shared with other services to reuse its clients and connections.
+     */
+    public GoogleApiService(GoogleClientFactory clientFactory) {
+        this.clientFactory = clientFactory;
+    }
+
+    /**
+     * Points the service to another endpoint than Google's, such as a proxy in front of the Service Usage and API Keys APIs.
+     * @param rootUrl The root URL, such as {@code http://localhost:8080/}, or null for the Google endpoint.
+     */
+    public void setRootUrl(String rootUrl) {
+        this.rootUrl = rootUrl;
+    }
+
+    /**
+     * @param operationWaiter The waiter used for the enable operations and the readiness probes.
+     */
+    public void setOperationWaiter(OperationWaiter operationWaiter) {
+        this.operationWaiter = operationWaiter;
+    }
+
     /**
      * Enables the required APIs for the Custom Search and API Keys services.
-     * Note: This method will wait for each API enabling operation to complete before returning,
-     * apis may not be immediately available after this method returns.
+     * All APIs are enabled by a single batch operation, which is atomic: either all of them are enabled or none.
+     * Note: This method waits for the enabling operation to complete, then probes the APIs until they are
+     * actually usable in the project, instead of waiting a fixed time for the change to propagate.
      * This method absolutely doesn't guarantee the APIs will be enabled, if there are any errors during the enabling process, an IOException will be thrown,
      * and If not work, enable the APIs manually from Google Cloud Console.
      * @param credential Authorized Credential object.
      * @param projectId  The ID of the Google Cloud project.
-     * @throws IOException          If an I/O error occurs.
+     * @throws IOException          If an I/O error occurs, or if an API is not usable before the deadline of the waiter.
      * @throws InterruptedException If the thread is interrupted while waiting.
      */
     public void enableApis(Credential credential, String projectId) throws IOException, InterruptedException {
-        ServiceUsage service = new ServiceUsage.Builder(
-                new NetHttpTransport(),
-                GsonFactory.getDefaultInstance(),
-                credential)
-                .setApplicationName("EazeEditor")
-                .build();
+        ServiceUsage service = clientFactory.serviceUsage(credential, rootUrl);
 
         List<String> servicesToEnable = Arrays.asList("customsearch.googleapis.com", "apikeys.googleapis.com");
 
-        for (String serviceToEnable : servicesToEnable) {
-            System.out.println("Enabling API: " + serviceToEnable + "...");
-            Operation operation = service.services().enable(String.format("projects/%s/services/%s", projectId, serviceToEnable), null).execute();
-
-            System.out.println("Waiting for operation " + operation.getName() + " to complete...");
+        // A single batch operation enables all services, so the wait is bounded by the slowest one
+        System.out.println("Enabling APIs: " + String.join(", ", servicesToEnable) + "...");
+        Operation started = service.services().batchEnable(String.format("projects/%s", projectId),
+                new BatchEnableServicesRequest().setServiceIds(servicesToEnable)).execute();
 
-            while (operation.getDone() == null || !operation.getDone()) {
-                // Poll for the operation status every 5 seconds.
-                Thread.sleep(5000);
-                operation = service.operations().get(operation.getName()).execute();
-            }
+        System.out.println("Waiting for operation " + started.getName() + " to complete...");
+        Operation operation = Boolean.TRUE.equals(started.getDone())
+                ? started
+                : operationWaiter.await("Enabling " + String.join(", ", servicesToEnable), () -> {
+                    Operation polled = service.operations().get(started.getName()).execute();
+                    return Boolean.TRUE.equals(polled.getDone()) ? polled : null;
+                });
 
-            if (operation.getError() != null) {
-                System.err.println("Error enabling API " + serviceToEnable + ": " + operation.getError().getMessage());
-                // Handle the error appropriately, maybe by throwing an exception.
-                throw new IOException("Error enabling API " + serviceToEnable + ": " + operation.getError().getMessage());
-            } else {
-                System.out.println("API " + serviceToEnable + " enabled successfully.");
-            }
+        if (operation.getError() != null) {
+            System.err.println("Error enabling APIs " + servicesToEnable + ": " + operation.getError().getMessage());
+            // The batch is atomic, none of the services was enabled
+            throw new IOException("Error enabling APIs " + servicesToEnable + ": " + operation.getError().getMessage());
         }
+        System.out.println("APIs " + String.join(", ", servicesToEnable) + " enabled successfully.");
+
+        awaitApisUsable(service, credential, projectId);
+    }
 
-        // Add a delay to allow for API propagation.
-        System.out.println("Waiting for 60 seconds for APIs to propagate before use...");
-        Thread.sleep(60000);
+    /**
+     * Probes the enabled APIs until they can be used. The API Keys API is probed with a real call, which fails with
+     * SERVICE_DISABLED until the change has propagated. Calling the Custom Search API needs a key, so its service
+     * state is checked instead.
+     */
+    private void awaitApisUsable(ServiceUsage service, Credential credential, String projectId) throws IOException, InterruptedException {
+        String customSearchName = String.format("projects/%s/services/%s", projectId, "customsearch.googleapis.com");
+        operationWaiter.await("Custom Search API to report ENABLED", () ->
+                "ENABLED".equals(service.services().get(customSearchName).execute().getState()) ? Boolean.TRUE : null);
+
+        ApiKeysService apiKeysService = clientFactory.apiKeys(credential, rootUrl);
+        String parent = String.format("projects/%s/locations/global", projectId);
+        operationWaiter.await("API Keys API to become usable", () -> {
+            try {
+                apiKeysService.projects().locations().keys().list(parent).setPageSize(1).execute();
+                return Boolean.TRUE;
+            } catch (GoogleJsonResponseException e) {
+                if (OperationWaiter.isServiceDisabled(e)) {
+                    return null;
+                }
+                throw e;
+            }
+        });
     }
 }
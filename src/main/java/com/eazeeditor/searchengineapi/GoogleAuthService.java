@@ -4,7 +4,6 @@ import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.auth.oauth2.AuthorizationCodeFlow;
 import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInstalledApp;
 import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
-import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.client.util.store.FileDataStoreFactory;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
@@ -15,7 +14,9 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author nurujjamanpollob
@@ -24,27 +25,35 @@ import java.util.List;
  */
 public class GoogleAuthService {
 
+    /**
+     * Directory the authorized credentials are stored in.
+     */
+    static final String CREDENTIALS_DIRECTORY = "./credentials";
+
+    /**
+     * Key of the authorized user in the credential store.
+     */
+    static final String DEFAULT_USER_ID = "user";
+
+    static final List<String> SCOPES = List.of("https://www.googleapis.com/auth/cloud-platform");
+
+    private static FileDataStoreFactory dataStoreFactory;
+    // Per client ID, a flow holds no per-user state
+    private static final Map<String, AuthorizationCodeFlow> flows = new HashMap<>();
+
     public Credential authenticateUser(String clientSecretsJsonPath) throws IOException {
         // Load the client secrets file
-        InputStream in = Files.newInputStream(Paths.get(clientSecretsJsonPath));
-        GoogleClientSecrets clientSecrets = GoogleClientSecrets.load(GsonFactory.getDefaultInstance(), new InputStreamReader(in));
+        GoogleClientSecrets clientSecrets = loadClientSecrets(clientSecretsJsonPath);
 
         // Create authorization flow
-        AuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-                new NetHttpTransport(),
-                GsonFactory.getDefaultInstance(),
-                clientSecrets,
-                List.of("https://www.googleapis.com/auth/cloud-platform"))
-                .setDataStoreFactory(new FileDataStoreFactory(new java.io.File("./credentials")))
-                .setAccessType("offline")
-                .build();
+        AuthorizationCodeFlow flow = getFlow(clientSecrets);
 
         // Create the authorization code installed app
         AuthorizationCodeInstalledApp app = new AuthorizationCodeInstalledApp(flow,
                 new LocalServerReceiver());
 
         // Perform authentication
-        return app.authorize("user");
+        return app.authorize(DEFAULT_USER_ID);
     }
 
     /**
@@ -63,18 +72,11 @@ public class GoogleAuthService {
 
         GoogleClientSecrets clientSecrets = new GoogleClientSecrets().setInstalled(details);
 
-        AuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-                new NetHttpTransport(),
-                GsonFactory.getDefaultInstance(),
-                clientSecrets,
-                List.of("https://www.googleapis.com/auth/cloud-platform"))
-                .setDataStoreFactory(new FileDataStoreFactory(new java.io.File("./credentials")))
-                .setAccessType("offline")
-                .build();
+        AuthorizationCodeFlow flow = getFlow(clientSecrets);
 
         AuthorizationCodeInstalledApp app = new AuthorizationCodeInstalledApp(flow, new LocalServerReceiver());
 
-        return app.authorize("user");
+        return app.authorize(DEFAULT_USER_ID);
     }
 
     /**
@@ -95,7 +97,33 @@ public class GoogleAuthService {
         return authenticateUser(clientId, clientSecret);
     }
 
+    static GoogleClientSecrets loadClientSecrets(String clientSecretsJsonPath) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(clientSecretsJsonPath))) {
+            return GoogleClientSecrets.load(GsonFactory.getDefaultInstance(), new InputStreamReader(in));
+        }
+    }
 
-
-
+    /**
+     * Returns the authorization flow of the client, built once. All flows share one credential store, as two stores
+     * on the same directory would overwrite each other's tokens.
+     */
+    static synchronized AuthorizationCodeFlow getFlow(GoogleClientSecrets clientSecrets) throws IOException {
+        String clientId = clientSecrets.getDetails().getClientId();
+        AuthorizationCodeFlow flow = flows.get(clientId);
+        if (flow == null) {
+            if (dataStoreFactory == null) {
+                dataStoreFactory = new FileDataStoreFactory(new java.io.File(CREDENTIALS_DIRECTORY));
+            }
+            flow = new GoogleAuthorizationCodeFlow.Builder(
+                    GoogleClientFactory.getDefault().getTransport(),
+                    GoogleClientFactory.getDefault().getJsonFactory(),
+                    clientSecrets,
+                    SCOPES)
+                    .setDataStoreFactory(dataStoreFactory)
+                    .setAccessType("offline")
+                    .build();
+            flows.put(clientId, flow);
+        }
+        return flow;
+    }
 }
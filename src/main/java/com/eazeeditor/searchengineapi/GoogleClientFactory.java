@@ -0,0 +1,222 @@
+package com.eazeeditor.searchengineapi;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.services.AbstractGoogleClient;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.apikeys.v2.ApiKeysService;
+import com.google.api.services.cloudresourcemanager.CloudResourceManager;
+import com.google.api.services.customsearch.v1.CustomSearchAPI;
+import com.google.api.services.serviceusage.v1.ServiceUsage;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * @author nurujjamanpollob
+ * Builds the Google API clients of the library on one pooled HTTP transport and one JSON factory, so every service
+ * reuses warm keep-alive connections instead of opening new TLS connections per call. Clients are cached per
+ * credential and root URL, a service asking twice for the same client gets the same instance.
+ * The shared instance returned by {@link #getDefault()} is used by every service that is not given a factory.
+ */
+public class GoogleClientFactory {
+
+    /**
+     * Default maximum number of open connections across all Google hosts.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+    /**
+     * Default maximum number of open connections to a single Google host.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 16;
+
+    /**
+     * Default time to establish a connection.
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 20_000;
+
+    /**
+     * Default time to wait for data on an established connection.
+     */
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 60_000;
+
+    private static final String APPLICATION_NAME = "Eaze Editor";
+    private static final Object NO_CREDENTIAL = new Object();
+
+    private static GoogleClientFactory defaultInstance;
+
+    private final HttpTransport transport;
+    private final JsonFactory jsonFactory = GsonFactory.getDefaultInstance();
+    private volatile int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private volatile int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+    // Per credential, then per client type and root URL
+    private final Map<Object, Map<String, AbstractGoogleClient>> clients = new WeakHashMap<>();
+
+    /**
+     * Creates a factory with its own connection pool of the default size.
+     */
+    public GoogleClientFactory() {
+        this(DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    }
+
+    /**
+     * Creates a factory with its own connection pool.
+     * @param maxConnections        The maximum number of open connections across all hosts.
+     * @param maxConnectionsPerHost The maximum number of open connections to a single host.
+     */
+    public GoogleClientFactory(int maxConnections, int maxConnectionsPerHost) {
+        if (maxConnections < 1 || maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("maxConnections and maxConnectionsPerHost must be at least 1");
+        }
+        this.transport = new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(Math.min(maxConnectionsPerHost, maxConnections))
+                .build());
+    }
+
+    /**
+     * Creates a factory building its clients on an existing transport.
+     * @param transport The HTTP transport, shared by all clients of the factory.
+     */
+    public GoogleClientFactory(HttpTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport cannot be null");
+        }
+        this.transport = transport;
+    }
+
+    /**
+     * @return the factory shared by the whole process, created with the default settings on first use.
+     */
+    public static synchronized GoogleClientFactory getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new GoogleClientFactory();
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Replaces the factory shared by the whole process, for example with a larger connection pool.
+     * Services created afterwards with their default constructor use it.
+     * @param factory The new shared factory.
+     */
+    public static synchronized void setDefault(GoogleClientFactory factory) {
+        if (factory == null) {
+            throw new IllegalArgumentException("factory cannot be null");
+        }
+        defaultInstance = factory;
+    }
+
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    public JsonFactory getJsonFactory() {
+        return jsonFactory;
+    }
+
+    /**
+     * @param connectTimeoutMillis The time to establish a connection, zero waits forever.
+     */
+    public void setConnectTimeout(int connectTimeoutMillis) {
+        if (connectTimeoutMillis < 0) {
+            throw new IllegalArgumentException("connectTimeoutMillis cannot be negative");
+        }
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    /**
+     * @param readTimeoutMillis The time to wait for data on an established connection, zero waits forever.
+     */
+    public void setReadTimeout(int readTimeoutMillis) {
+        if (readTimeoutMillis < 0) {
+            throw new IllegalArgumentException("readTimeoutMillis cannot be negative");
+        }
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * @param credential Authorized Credential object.
+     * @param rootUrl    The root URL, or null for the Google endpoint.
+     * @return the Resource Manager client of the credential.
+     */
+    public CloudResourceManager cloudResourceManager(Credential credential, String rootUrl) {
+        return client(CloudResourceManager.class, credential, rootUrl, initializer ->
+                build(new CloudResourceManager.Builder(transport, jsonFactory, initializer), rootUrl));
+    }
+
+    /**
+     * @param credential Authorized Credential object.
+     * @param rootUrl    The root URL, or null for the Google endpoint.
+     * @return the Service Usage client of the credential.
+     */
+    public ServiceUsage serviceUsage(Credential credential, String rootUrl) {
+        return client(ServiceUsage.class, credential, rootUrl, initializer ->
+                build(new ServiceUsage.Builder(transport, jsonFactory, initializer), rootUrl));
+    }
+
+    /**
+     * @param credential Authorized Credential object.
+     * @param rootUrl    The root URL, or null for the Google endpoint.
+     * @return the API Keys client of the credential.
+     */
+    public ApiKeysService apiKeys(Credential credential, String rootUrl) {
+        return client(ApiKeysService.class, credential, rootUrl, initializer ->
+                build(new ApiKeysService.Builder(transport, jsonFactory, initializer), rootUrl));
+    }
+
+    /**
+     * The Custom Search API is authenticated by the API key of each request, so its client is shared by all keys.
+     * @param rootUrl The root URL, or null for the Google endpoint.
+     * @return the Custom Search client.
+     */
+    public CustomSearchAPI customSearch(String rootUrl) {
+        return client(CustomSearchAPI.class, null, rootUrl, initializer ->
+                build(new CustomSearchAPI.Builder(transport, jsonFactory, initializer), rootUrl));
+    }
+
+    private interface ClientBuilder<T extends AbstractGoogleClient> {
+        T build(HttpRequestInitializer initializer);
+    }
+
+    private <T extends AbstractGoogleClient> T client(Class<T> type, Credential credential, String rootUrl, ClientBuilder<T> builder) {
+        Object owner = credential != null ? credential : NO_CREDENTIAL;
+        String key = type.getName() + "|" + (rootUrl != null ? rootUrl : "");
+        synchronized (clients) {
+            Map<String, AbstractGoogleClient> ownerClients = clients.computeIfAbsent(owner, k -> new HashMap<>());
+            return type.cast(ownerClients.computeIfAbsent(key, k -> builder.build(initializer(credential))));
+        }
+    }
+
+    private HttpRequestInitializer initializer(Credential credential) {
+        // A weak reference, so the cached client does not keep its credential and itself from being collected
+        WeakReference<Credential> credentialRef = credential != null ? new WeakReference<>(credential) : null;
+        return request -> {
+            if (credentialRef != null) {
+                Credential current = credentialRef.get();
+                if (current == null) {
+                    throw new IllegalStateException("The credential of this client is no longer in use");
+                }
+                current.initialize(request);
+            }
+            request.setConnectTimeout(connectTimeoutMillis);
+            request.setReadTimeout(readTimeoutMillis);
+        };
+    }
+
+    private static <T extends AbstractGoogleClient> T build(AbstractGoogleClient.Builder builder, String rootUrl) {
+        builder.setApplicationName(APPLICATION_NAME);
+        if (rootUrl != null) {
+            builder.setRootUrl(rootUrl);
+        }
+        @SuppressWarnings("unchecked")
+        T client = (T) builder.build();
+        return client;
+    }
+}
@@ -1,16 +1,17 @@
 package com.eazeeditor.searchengineapi;
 
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.services.cloudresourcemanager.CloudResourceManager;
 import com.google.api.services.cloudresourcemanager.model.ListProjectsResponse;
 import com.google.api.services.cloudresourcemanager.model.Operation;
 import com.google.api.services.cloudresourcemanager.model.Project;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * @author nurujjamanpollob
@@ -18,28 +19,125 @@ import java.util.concurrent.TimeUnit;
  */
 public class GoogleProjectService {
 
-    public String selectOrCreateProject(Credential credential, String desiredProjectName) throws IOException, InterruptedException {
-        CloudResourceManager service = new CloudResourceManager.Builder(
-                new NetHttpTransport(),
-                GsonFactory.getDefaultInstance(),
-                credential)
-                .setApplicationName("EazeEditor")
-                .build();
+    /**
+     * Default time a project name to ID mapping is served from the cache.
+     */
+    public static final Duration DEFAULT_PROJECT_CACHE_TTL = Duration.ofMinutes(10);
 
-        // List projects
-        ListProjectsResponse response = service.projects().list().execute();
-        List<Project> projects = response.getProjects();
+    private final GoogleClientFactory clientFactory;
+    private String rootUrl;
+    private OperationWaiter operationWaiter = new OperationWaiter();
+    private long projectCacheTtlMillis = DEFAULT_PROJECT_CACHE_TTL.toMillis();
+    // Per credential, a credential only sees the projects of its account
+    private final Map<Credential, Map<String, CachedProject>> projectCache = new WeakHashMap<>();
 
-        // Check if project exists
-        if (projects != null) {
-            for (Project project : projects) {
-                if (desiredProjectName.equals(project.getName()) && "ACTIVE".equals(project.getLifecycleState())) {
-                    System.out.println("Found existing active project: " + project.getProjectId());
-                    return project.getProjectId();
+    public GoogleProjectService() {
+        this(GoogleClientFactory.getDefault());
+    }
+
+    /**
+     * @param transport The HTTP transport, shared with other services to reuse its connections.
+     */
+    public GoogleProjectService(HttpTransport transport) {
+        this(new GoogleClientFactory(transport));
+    }
+
+    /**
+     * @param clientFactory The factory of the Google API clients, shared with other services to reuse its clients and connections.
+     */
+    public GoogleProjectService(GoogleClientFactory clientFactory) {
+        this.clientFactory = clientFactory;
+    }
+
+    /**
+     * Points the service to another endpoint than Google's, such as a proxy in front of the Resource Manager API.
+     * @param rootUrl The root URL, such as {@code http://localhost:8080/}, or null for the Google endpoint.
+     */
+    public void setRootUrl(String rootUrl) {
+        this.rootUrl = rootUrl;
+    }
+
+    /**
+     * @param operationWaiter The waiter used for the project creation operation.
+     */
+    public void setOperationWaiter(OperationWaiter operationWaiter) {
+        this.operationWaiter = operationWaiter;
+    }
+
+    /**
+     * @param projectCacheTtl How long a project name to ID mapping is served without asking Resource Manager,
+     *                        zero disables the cache.
+     */
+    public void setProjectCacheTtl(Duration projectCacheTtl) {
+        if (projectCacheTtl == null || projectCacheTtl.isNegative()) {
+            throw new IllegalArgumentException("projectCacheTtl cannot be null or negative");
+        }
+        this.projectCacheTtlMillis = projectCacheTtl.toMillis();
+    }
+
+    /**
+     * Forgets every cached project, for example after projects were deleted outside of this service.
+     */
+    public void invalidateProjectCache() {
+        synchronized (projectCache) {
+            projectCache.clear();
+        }
+    }
+
+    /**
+     * Looks up an active project by its display name. Resource Manager filters the projects server-side and every
+     * page of the result is read, so the project is found however many projects the account has. Found projects
+     * are cached, repeat lookups within the cache TTL don't touch the network.
+     *
+     * @param credential  Authorized Credential object.
+     * @param projectName The display name of the project.
+     * @return The project ID, or null if the account has no active project with this name.
+     * @throws IOException If an I/O error occurs.
+     */
+    public String findActiveProject(Credential credential, String projectName) throws IOException {
+        String cached = getCachedProject(credential, projectName);
+        if (cached != null) {
+            return cached;
+        }
+        return findActiveProject(buildClient(credential), credential, projectName);
+    }
+
+    private String findActiveProject(CloudResourceManager service, Credential credential, String projectName) throws IOException {
+        String filter = "name:\"" + projectName.replace("\\", "\\\\").replace("\"", "\\\"") + "\" lifecycleState:ACTIVE";
+        String pageToken = null;
+        do {
+            ListProjectsResponse response = service.projects().list()
+                    .setFilter(filter)
+                    .setPageToken(pageToken)
+                    .execute();
+            if (response.getProjects() != null) {
+                for (Project project : response.getProjects()) {
+                    // The filter is case-insensitive, the name must match exactly
+                    if (projectName.equals(project.getName()) && "ACTIVE".equals(project.getLifecycleState())) {
+                        cacheProject(credential, projectName, project.getProjectId());
+                        return project.getProjectId();
+                    }
                 }
             }
+            pageToken = response.getNextPageToken();
+        } while (pageToken != null && !pageToken.isEmpty());
+        return null;
+    }
+
+    public String selectOrCreateProject(Credential credential, String desiredProjectName) throws IOException, InterruptedException {
+        String cached = getCachedProject(credential, desiredProjectName);
+        if (cached != null) {
+            System.out.println("Found existing active project: " + cached);
+            return cached;
         }
+        CloudResourceManager service = buildClient(credential);
 
+        // Check if project exists
+        String existingProjectId = findActiveProject(service, credential, desiredProjectName);
+        if (existingProjectId != null) {
+            System.out.println("Found existing active project: " + existingProjectId);
+            return existingProjectId;
+        }
         // Create new project
         String projectId = desiredProjectName.toLowerCase().replaceAll("[^a-z0-9-]", "") + "-" + System.currentTimeMillis();
         Project newProject = new Project()
@@ -51,18 +149,55 @@ public class GoogleProjectService {
 
         // Poll for project creation completion
         System.out.println("Waiting for project creation to complete...");
-        while (true) {
-            Operation op = service.operations().get(operation.getName()).execute();
-            if (op.getDone() != null && op.getDone()) {
-                if (op.getError() != null) {
-                    throw new IOException("Error creating project: " + op.getError().getMessage());
-                }
-                System.out.println("Project created successfully.");
-                break;
-            }
-            TimeUnit.SECONDS.sleep(5);
+        Operation op = operationWaiter.await("Creating project " + projectId, () -> {
+            Operation polled = service.operations().get(operation.getName()).execute();
+            return Boolean.TRUE.equals(polled.getDone()) ? polled : null;
+        });
+        if (op.getError() != null) {
+            throw new IOException("Error creating project: " + op.getError().getMessage());
         }
+        System.out.println("Project created successfully.");
 
+        cacheProject(credential, desiredProjectName, newProject.getProjectId());
         return newProject.getProjectId();
     }
+
+    private CloudResourceManager buildClient(Credential credential) {
+        return clientFactory.cloudResourceManager(credential, rootUrl);
+    }
+
+    private String getCachedProject(Credential credential, String projectName) {
+        synchronized (projectCache) {
+            Map<String, CachedProject> projects = projectCache.get(credential);
+            CachedProject project = projects != null ? projects.get(projectName) : null;
+            if (project == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() >= project.expiresAtMillis) {
+                projects.remove(projectName);
+                return null;
+            }
+            return project.projectId;
+        }
+    }
+
+    private void cacheProject(Credential credential, String projectName, String projectId) {
+        if (projectCacheTtlMillis == 0) {
+            return;
+        }
+        synchronized (projectCache) {
+            projectCache.computeIfAbsent(credential, c -> new HashMap<>())
+                    .put(projectName, new CachedProject(projectId, System.currentTimeMillis() + projectCacheTtlMillis));
+        }
+    }
+
+    private static final class CachedProject {
+        private final String projectId;
+        private final long expiresAtMillis;
+
+        private CachedProject(String projectId, long expiresAtMillis) {
+            this.projectId = projectId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
 }
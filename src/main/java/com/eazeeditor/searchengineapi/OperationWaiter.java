@@ -0,0 +1,137 @@
+package com.eazeeditor.searchengineapi;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * @author nurujjamanpollob
+ * Waits for Google Cloud long-running operations and for freshly enabled APIs to become usable.
+ * It polls with an adaptive backoff, fast at first since most operations finish within seconds, then slower up to
+ * a maximum interval, and gives up at an overall deadline. This replaces fixed sleeps, so provisioning takes as long
+ * as the operations really do.
+ */
+public class OperationWaiter {
+
+    /**
+     * Default delay before the second poll.
+     */
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 500;
+
+    /**
+     * Default longest delay between two polls.
+     */
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 10_000;
+
+    /**
+     * Default growth factor of the delay after every poll.
+     */
+    public static final double DEFAULT_BACKOFF_MULTIPLIER = 1.5;
+
+    /**
+     * Default overall time a single wait may take.
+     */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(5);
+
+    /**
+     * Checks the state of what is waited for.
+     * @param <T> the type of the outcome.
+     */
+    public interface Poll<T> {
+        /**
+         * @return the outcome once it is available, or null to poll again later.
+         * @throws IOException if the check fails for a reason that waiting cannot fix.
+         */
+        T poll() throws IOException;
+    }
+
+    private final Duration timeout;
+    private long initialDelayMillis = DEFAULT_INITIAL_DELAY_MILLIS;
+    private long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+    private double backoffMultiplier = DEFAULT_BACKOFF_MULTIPLIER;
+
+    public OperationWaiter() {
+        this(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param timeout The overall time a single wait may take.
+     */
+    public OperationWaiter(Duration timeout) {
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeout = timeout;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setInitialDelay(long initialDelayMillis) {
+        if (initialDelayMillis <= 0) {
+            throw new IllegalArgumentException("initialDelayMillis must be positive");
+        }
+        this.initialDelayMillis = initialDelayMillis;
+    }
+
+    public void setMaxDelay(long maxDelayMillis) {
+        if (maxDelayMillis <= 0) {
+            throw new IllegalArgumentException("maxDelayMillis must be positive");
+        }
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public void setBackoffMultiplier(double backoffMultiplier) {
+        if (backoffMultiplier < 1) {
+            throw new IllegalArgumentException("backoffMultiplier must be at least 1");
+        }
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    /**
+     * Polls until an outcome is available or the deadline passes. The first poll happens immediately.
+     * @param description What is waited for, for logging and error messages.
+     * @param poll        The check, returning null while the outcome is not available.
+     * @param <T>         The type of the outcome.
+     * @return The outcome.
+     * @throws IOException          If a poll fails, or if the deadline passes before an outcome is available.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public <T> T await(String description, Poll<T> poll) throws IOException, InterruptedException {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + timeout.toNanos();
+        long delayMillis = initialDelayMillis;
+        int polls = 0;
+        while (true) {
+            T outcome = poll.poll();
+            polls++;
+            if (outcome != null) {
+                long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+                System.out.println(description + " completed after " + elapsedMillis + " ms (" + polls + " polls)");
+                return outcome;
+            }
+            long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+            if (remainingMillis <= 0) {
+                throw new IOException(description + " timed out after " + timeout.getSeconds() + " seconds");
+            }
+            Thread.sleep(Math.min(delayMillis, remainingMillis));
+            delayMillis = Math.min(maxDelayMillis, (long) (delayMillis * backoffMultiplier));
+        }
+    }
+
+    /**
+     * @param e A failed Google API call.
+     * @return true if the call failed because the API is disabled or not yet usable in the project, which resolves
+     * itself a while after the API has been enabled.
+     */
+    public static boolean isServiceDisabled(GoogleJsonResponseException e) {
+        if (e.getStatusCode() != 403) {
+            return false;
+        }
+        String message = e.getDetails() != null ? e.getDetails().getMessage() : e.getMessage();
+        return message != null && (message.contains("SERVICE_DISABLED") || message.contains("has not been used in project")
+                || message.contains("is disabled"));
+    }
+}
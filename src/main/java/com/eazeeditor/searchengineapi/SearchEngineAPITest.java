@@ -1,14 +1,11 @@
 package com.eazeeditor.searchengineapi;
 
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.services.apikeys.v2.ApiKeysService;
-import com.google.api.services.apikeys.v2.model.Operation;
 import com.google.api.services.customsearch.v1.model.Result;
 import com.google.api.services.customsearch.v1.model.Search;
 
 import java.io.IOException;
 import java.util.Scanner;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author nurujjamanpollob
@@ -45,17 +42,14 @@ public class SearchEngineAPITest {
             System.out.println("Enabling required APIs (Custom Search API, API Keys API)...");
             GoogleApiService apiService = new GoogleApiService();
             apiService.enableApis(credential, projectId);
-            // The enableApis method now includes a wait, so the extra sleep here is removed.
+            // The enableApis method waits until the APIs are usable, so no extra sleep is needed here.
 
-            // 5. Create a restricted API key
-            System.out.println("Creating a new restricted API key...");
+            // 5. Get the restricted API key, reusing the key of a previous run if there is one
+            System.out.println("Getting a restricted API key...");
             ApiKeyService apiKeyService = new ApiKeyService();
-            String operationName = apiKeyService.createRestrictedApiKey(credential, projectId);
-            System.out.println("API key creation started. Operation: " + operationName);
-
-            // Poll the operation to get the created key
-            String apiKey = pollForKey(credential, operationName);
-            System.out.println("Successfully created API Key: " + apiKey);
+            apiKeyService.setKeyRegistry("./credentials/api-keys.json");
+            String apiKey = apiKeyService.getOrCreateRestrictedApiKey(credential, projectId);
+            System.out.println("Using API Key: " + apiKey);
 
 
             // 6. Perform a search
@@ -78,39 +72,4 @@ public class SearchEngineAPITest {
         }
     }
 
-    /**
-     * Polls the operation until the API key is created and returns the key string.
-     * @param credential the authorized Credential object
-     * @param operationName the name of the operation to poll
-     * @return the created API key string
-     * @throws IOException If an I/O error occurs
-     * @throws InterruptedException If the thread is interrupted while waiting
-     */
-    private static String pollForKey(Credential credential, String operationName) throws IOException, InterruptedException {
-        ApiKeysService apiKeysService = new ApiKeysService.Builder(
-                new com.google.api.client.http.javanet.NetHttpTransport(),
-                new com.google.api.client.json.gson.GsonFactory(),
-                credential)
-                .setApplicationName("Eaze Editor")
-                .build();
-
-        System.out.println("Polling for API key creation status...");
-        for (int i = 0; i < 30; i++) { // Poll for up to 5 minutes (30 * 10s)
-            Operation op = apiKeysService.operations().get(operationName).execute();
-            if (op.getDone() != null && op.getDone()) {
-                if (op.getResponse() != null) {
-                    // The response is a map, we need to extract the keyString
-                    java.util.Map<String, Object> responseMap = (java.util.Map<String, Object>) op.getResponse();
-                    return (String) responseMap.get("keyString");
-                } else if (op.getError() != null) {
-                    throw new IOException("Error creating API key: " + op.getError().getMessage());
-                }
-                break; // Should not be reached if response or error is present
-            }
-            System.out.println("Waiting for key creation to complete... (10s)");
-            TimeUnit.SECONDS.sleep(10);
-        }
-        throw new IOException("API key creation timed out.");
-    }
-
 }
@@ -0,0 +1,102 @@
+package com.eazeeditor.searchengineapi.browser;
+
+import org.openqa.selenium.devtools.v142.network.model.ResourceType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of requests a {@link RequestInterceptor} fails before they reach the network, by resource type and by URL pattern.
+ * The predefined profiles match the workloads of this library; custom profiles can be built with the constructor.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class BlockProfile {
+
+    /**
+     * Ad, analytics and tracking hosts, in the wildcard syntax of the DevTools Fetch domain.
+     */
+    public static final List<String> AD_AND_TRACKER_PATTERNS = Collections.unmodifiableList(Arrays.asList(
+            "*doubleclick.net/*",
+            "*googlesyndication.com/*",
+            "*googleadservices.com/*",
+            "*google-analytics.com/*",
+            "*googletagmanager.com/*",
+            "*googletagservices.com/*",
+            "*amazon-adsystem.com/*",
+            "*adnxs.com/*",
+            "*criteo.com/*",
+            "*taboola.com/*",
+            "*outbrain.com/*",
+            "*scorecardresearch.com/*",
+            "*hotjar.com/*",
+            "*connect.facebook.net/*"));
+
+    /**
+     * Blocks nothing.
+     */
+    public static final BlockProfile NONE = new BlockProfile("none",
+            EnumSet.noneOf(ResourceType.class), Collections.emptyList());
+
+    /**
+     * Search result scraping only needs the DOM: blocks images, media, fonts, ads and trackers.
+     */
+    public static final BlockProfile SERP_SCRAPING = new BlockProfile("serp-scraping",
+            EnumSet.of(ResourceType.IMAGE, ResourceType.MEDIA, ResourceType.FONT), AD_AND_TRACKER_PATTERNS);
+
+    /**
+     * Screenshots need everything that renders: blocks only media, ads and trackers.
+     */
+    public static final BlockProfile SCREENSHOT = new BlockProfile("screenshot",
+            EnumSet.of(ResourceType.MEDIA), AD_AND_TRACKER_PATTERNS);
+
+    /**
+     * Reading the rendered page source, where assets are fetched separately: blocks images, media, fonts, ads and trackers.
+     */
+    public static final BlockProfile PAGE_SOURCE = new BlockProfile("page-source",
+            EnumSet.of(ResourceType.IMAGE, ResourceType.MEDIA, ResourceType.FONT), AD_AND_TRACKER_PATTERNS);
+
+    private final String name;
+    private final Set<ResourceType> resourceTypes;
+    private final List<String> urlPatterns;
+
+    /**
+     * @param name          the name reported in the page load statistics.
+     * @param resourceTypes the resource types to block.
+     * @param urlPatterns   URL patterns to block whatever their type, '*' matches any characters and '?' a single one.
+     */
+    public BlockProfile(String name, Set<ResourceType> resourceTypes, List<String> urlPatterns) {
+        this.name = name;
+        this.resourceTypes = Collections.unmodifiableSet(resourceTypes.isEmpty()
+                ? EnumSet.noneOf(ResourceType.class) : EnumSet.copyOf(resourceTypes));
+        this.urlPatterns = Collections.unmodifiableList(new ArrayList<>(urlPatterns));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<ResourceType> getResourceTypes() {
+        return resourceTypes;
+    }
+
+    public List<String> getUrlPatterns() {
+        return urlPatterns;
+    }
+
+    /**
+     * @return true if the profile blocks nothing, in which case no interception is set up at all.
+     */
+    public boolean isEmpty() {
+        return resourceTypes.isEmpty() && urlPatterns.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,30 @@
+package com.eazeeditor.searchengineapi.browser;
+
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+/**
+ * A place where a {@link BrowserManager} can start browsers: the local machine, or a remote WebDriver endpoint such as a
+ * Selenium Grid or a hosted browser service. The manager spreads browsers over its endpoints by load, so browser
+ * capacity scales independently of the JVM running the services.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public interface BrowserEndpoint {
+
+    /**
+     * @return the name of the endpoint, for logging.
+     */
+    String getName();
+
+    /**
+     * @return the maximum number of browsers this endpoint runs at once.
+     */
+    int getCapacity();
+
+    /**
+     * Starts a browser with the flags of a profile. The driver must support DevTools, see {@link org.openqa.selenium.devtools.HasDevTools}.
+     * @param profile the browser profile.
+     * @return the driver of the new browser.
+     */
+    RemoteWebDriver launch(BrowserProfile profile);
+}
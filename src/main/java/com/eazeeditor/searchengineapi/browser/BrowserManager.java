@@ -0,0 +1,343 @@
+package com.eazeeditor.searchengineapi.browser;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Owns every Chrome browser of the library: it builds the launch flags from a {@link BrowserProfile}, keeps a
+ * {@link BrowserPool} of warm browsers per profile, and caps the number of browsers running at once across all
+ * profiles. One manager can be shared by the search, screenshot and download services, so all their workloads run
+ * on a single capacity-managed fleet. When the fleet is full, an idle browser of another profile is quit to make room,
+ * otherwise the launch waits for a browser to be released.
+ * Browsers are started on one or more {@link BrowserEndpoint}s, local or remote. Each launch goes to the endpoint with
+ * the lowest share of its capacity in use, and an endpoint that fails to start a browser is skipped for a while.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class BrowserManager implements AutoCloseable {
+
+    /**
+     * How long an endpoint that failed to start a browser is only used when no other endpoint has room.
+     */
+    private static final long ENDPOINT_COOLDOWN_MILLIS = 30_000;
+
+    private final List<EndpointState> endpoints;
+    private final Map<RemoteWebDriver, EndpointState> browserEndpoints = new ConcurrentHashMap<>();
+    private final Map<BrowserProfile, BrowserPool> pools = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private volatile int maxBrowsers;
+    private volatile int maxUsesPerBrowser = BrowserPool.DEFAULT_MAX_USES_PER_BROWSER;
+    private int runningBrowsers;
+
+    /**
+     * Creates a manager launching local browsers.
+     * @param chromeBinary the Chrome binary, or null to let ChromeDriver locate it.
+     */
+    public BrowserManager(String chromeBinary) {
+        this(Collections.singletonList(new LocalBrowserEndpoint(chromeBinary)));
+        this.maxBrowsers = Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BrowserManager(String chromeBinary, int maxBrowsers) {
+        this(chromeBinary);
+        setMaxBrowsers(maxBrowsers);
+    }
+
+    /**
+     * Creates a manager spreading browsers over a fleet of endpoints, its capacity is the sum of their capacities.
+     * @param endpoints the endpoints to start browsers on.
+     */
+    public BrowserManager(List<? extends BrowserEndpoint> endpoints) {
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException("endpoints cannot be null or empty");
+        }
+        List<EndpointState> states = new ArrayList<>();
+        long capacity = 0;
+        for (BrowserEndpoint endpoint : endpoints) {
+            states.add(new EndpointState(endpoint));
+            capacity += endpoint.getCapacity();
+        }
+        this.endpoints = Collections.unmodifiableList(states);
+        this.maxBrowsers = (int) Math.min(capacity, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the endpoints browsers are started on.
+     */
+    public List<BrowserEndpoint> getEndpoints() {
+        List<BrowserEndpoint> list = new ArrayList<>();
+        endpoints.forEach(state -> list.add(state.endpoint));
+        return list;
+    }
+
+    /**
+     * @param endpoint one of the endpoints of this manager.
+     * @return the number of browsers currently running on the endpoint.
+     */
+    public int getRunningBrowsers(BrowserEndpoint endpoint) {
+        lock.lock();
+        try {
+            for (EndpointState state : endpoints) {
+                if (state.endpoint == endpoint) {
+                    return state.running;
+                }
+            }
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxBrowsers() {
+        return maxBrowsers;
+    }
+
+    /**
+     * Changing the capacity quits the idle browsers, the pools are recreated with the new size on demand.
+     * @param maxBrowsers the maximum number of browsers running at once across all profiles,
+     *                    defaults to the number of available processors.
+     */
+    public void setMaxBrowsers(int maxBrowsers) {
+        if (maxBrowsers < 1) {
+            throw new IllegalArgumentException("maxBrowsers must be at least 1");
+        }
+        lock.lock();
+        try {
+            this.maxBrowsers = maxBrowsers;
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // Pools are sized from the capacity, recreate them on demand
+        close();
+    }
+
+    /**
+     * @param maxUsesPerBrowser the number of tasks after which a pooled browser is recycled.
+     */
+    public void setMaxUsesPerBrowser(int maxUsesPerBrowser) {
+        if (maxUsesPerBrowser < 1) {
+            throw new IllegalArgumentException("maxUsesPerBrowser must be at least 1");
+        }
+        this.maxUsesPerBrowser = maxUsesPerBrowser;
+        close();
+    }
+
+    /**
+     * @return the number of browsers currently running, pooled or dedicated.
+     */
+    public int getRunningBrowsers() {
+        lock.lock();
+        try {
+            return runningBrowsers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Borrows a fresh tab in a warm browser of the profile, launching one if needed.
+     * @param profile the browser profile.
+     * @return a lease, which must be closed to return the browser.
+     * @throws InterruptedException if the thread is interrupted while waiting for capacity.
+     */
+    public BrowserPool.Lease acquire(BrowserProfile profile) throws InterruptedException {
+        while (true) {
+            BrowserPool pool = pools.computeIfAbsent(profile, this::createPool);
+            try {
+                return pool.acquire();
+            } catch (IllegalStateException e) {
+                if (!pool.isClosed()) {
+                    throw e;
+                }
+                // Closed by close() or a setter in the meantime, retry on a fresh pool
+                pools.remove(profile, pool);
+            }
+        }
+    }
+
+    /**
+     * Launches a browser of the profile for a single task, quit when the lease is closed.
+     * It counts against the fleet capacity like pooled browsers.
+     * @param profile the browser profile.
+     * @return a lease on the browser.
+     * @throws InterruptedException if the thread is interrupted while waiting for capacity.
+     */
+    public BrowserPool.Lease launch(BrowserProfile profile) throws InterruptedException {
+        BrowserPool.BrowserFactory factory = factory(profile);
+        return BrowserPool.dedicated(factory.launch(), factory);
+    }
+
+    /**
+     * Quits the idle browsers of a profile, for example to release the lock on its user data directory.
+     * @param profile the browser profile.
+     */
+    public void evict(BrowserProfile profile) {
+        BrowserPool pool = pools.get(profile);
+        if (pool != null) {
+            while (pool.evictIdle()) {
+                // Quit them all
+            }
+        }
+    }
+
+    /**
+     * Quits every idle browser. Leased browsers are quit when they are released.
+     * The manager remains usable, new pools are created on demand.
+     */
+    @Override
+    public void close() {
+        for (BrowserProfile profile : pools.keySet()) {
+            BrowserPool pool = pools.remove(profile);
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+
+    private BrowserPool createPool(BrowserProfile profile) {
+        // Chrome locks a user data directory, so a persistent profile can only run one browser
+        int poolSize = profile.isPersistent() ? 1 : maxBrowsers;
+        return new BrowserPool(factory(profile), poolSize, maxUsesPerBrowser, profile.isPersistent());
+    }
+
+    private BrowserPool.BrowserFactory factory(BrowserProfile profile) {
+        return new BrowserPool.BrowserFactory() {
+            @Override
+            public RemoteWebDriver launch() throws InterruptedException {
+                WebDriverException failure = null;
+                // Every endpoint gets one chance, starting with the least loaded
+                for (int attempt = 0; attempt < endpoints.size(); attempt++) {
+                    EndpointState state = reserveSlot();
+                    try {
+                        RemoteWebDriver driver = state.endpoint.launch(profile);
+                        browserEndpoints.put(driver, state);
+                        return driver;
+                    } catch (WebDriverException e) {
+                        System.err.println("Failed to start a " + profile + " browser on " + state.endpoint.getName() + " - " + e.getMessage());
+                        releaseSlot(state, true);
+                        failure = e;
+                    } catch (RuntimeException e) {
+                        releaseSlot(state, false);
+                        throw e;
+                    }
+                }
+                throw failure;
+            }
+
+            @Override
+            public void quit(RemoteWebDriver driver) {
+                try {
+                    BrowserPool.BrowserFactory.super.quit(driver);
+                } finally {
+                    EndpointState state = browserEndpoints.remove(driver);
+                    if (state != null) {
+                        releaseSlot(state, false);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits for room in the fleet and reserves a browser on the endpoint with the lowest load.
+     * Endpoints that failed recently are only used when no healthy endpoint has room.
+     */
+    private EndpointState reserveSlot() throws InterruptedException {
+        while (true) {
+            Runnable eviction;
+            lock.lock();
+            try {
+                EndpointState selected = null;
+                if (runningBrowsers < maxBrowsers) {
+                    long now = System.currentTimeMillis();
+                    for (EndpointState state : endpoints) {
+                        if (state.running < state.endpoint.getCapacity() && (selected == null || state.isPreferredTo(selected, now))) {
+                            selected = state;
+                        }
+                    }
+                }
+                if (selected != null) {
+                    selected.running++;
+                    runningBrowsers++;
+                    return selected;
+                }
+                eviction = takeIdleBrowser();
+                if (eviction == null) {
+                    // Nothing idle to evict, wait for a release and look again
+                    slotFreed.await(1, TimeUnit.SECONDS);
+                    continue;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Quitting a browser can take seconds, the fleet is not held up meanwhile
+            eviction.run();
+        }
+    }
+
+    private void releaseSlot(EndpointState state, boolean failed) {
+        lock.lock();
+        try {
+            state.running--;
+            runningBrowsers--;
+            if (failed) {
+                state.failedAtMillis = System.currentTimeMillis();
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the quit of an idle browser taken from its pool, or null if no browser is idle.
+     */
+    private Runnable takeIdleBrowser() {
+        for (BrowserPool pool : pools.values()) {
+            RemoteWebDriver driver = pool.takeIdle();
+            if (driver != null) {
+                return () -> pool.quit(driver);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Load accounting of an endpoint, guarded by the lock of the manager.
+     */
+    private static final class EndpointState {
+        private final BrowserEndpoint endpoint;
+        private int running;
+        private long failedAtMillis;
+
+        private EndpointState(BrowserEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private boolean isHealthy(long now) {
+            return now - failedAtMillis >= ENDPOINT_COOLDOWN_MILLIS;
+        }
+
+        private double load() {
+            return (double) running / endpoint.getCapacity();
+        }
+
+        private boolean isPreferredTo(EndpointState other, long now) {
+            if (isHealthy(now) != other.isHealthy(now)) {
+                return isHealthy(now);
+            }
+            return load() < other.load();
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.eazeeditor.searchengineapi.browser;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.devtools.v142.browser.model.BrowserContextID;
+import org.openqa.selenium.devtools.v142.target.Target;
+import org.openqa.selenium.devtools.v142.target.model.TargetID;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pool of warm Chrome browsers sharing one {@link BrowserProfile}, so a task opens a fresh tab instead of launching a browser.
+ * The browsers may run locally or on a remote endpoint, see {@link BrowserEndpoint}.
+ * Every lease gets its own tab in a fresh browser context, which has its own cookies, local storage, IndexedDB and
+ * cache like an incognito window, and is discarded when the lease is released. A pool that keeps sessions opens plain
+ * tabs instead, sharing the state of the persistent profile. A browser without DevTools cannot create contexts, its
+ * leases only clear the cookies of the last page they visited. Browsers are launched lazily up to the pool size, recycled after a configurable
+ * number of uses, and replaced transparently when they crash or stop responding.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class BrowserPool implements AutoCloseable {
+
+    /**
+     * Default number of leases after which a browser is quit and replaced, to bound memory growth of long-lived browsers.
+     */
+    public static final int DEFAULT_MAX_USES_PER_BROWSER = 50;
+
+    /**
+     * Launches and quits the browsers of a pool.
+     */
+    public interface BrowserFactory {
+        RemoteWebDriver launch() throws InterruptedException;
+
+        default void quit(RemoteWebDriver driver) {
+            try {
+                driver.quit();
+            } catch (WebDriverException e) {
+                // Already gone
+            }
+        }
+    }
+
+    private final BrowserFactory browserFactory;
+    private final int poolSize;
+    private final int maxUsesPerBrowser;
+    private final boolean keepSessions;
+    private final Semaphore permits;
+    private final LinkedBlockingQueue<PooledBrowser> idle = new LinkedBlockingQueue<>();
+    private volatile boolean closed;
+
+    /**
+     * @param browserFactory    launches a new browser, called lazily when no idle browser is available.
+     * @param poolSize          the maximum number of browsers, and therefore of concurrent leases.
+     * @param maxUsesPerBrowser the number of leases after which a browser is recycled.
+     * @param keepSessions      true to keep cookies between leases, for browsers running on a persistent profile.
+     */
+    public BrowserPool(BrowserFactory browserFactory, int poolSize, int maxUsesPerBrowser, boolean keepSessions) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be at least 1");
+        }
+        if (maxUsesPerBrowser < 1) {
+            throw new IllegalArgumentException("maxUsesPerBrowser must be at least 1");
+        }
+        this.browserFactory = browserFactory;
+        this.poolSize = poolSize;
+        this.maxUsesPerBrowser = maxUsesPerBrowser;
+        this.keepSessions = keepSessions;
+        this.permits = new Semaphore(poolSize, true);
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Wraps a browser that is not pooled, it is quit through the factory when the lease is closed.
+     * @param driver  the dedicated browser.
+     * @param factory the factory that launched the browser.
+     * @return a lease on the browser.
+     */
+    public static Lease dedicated(RemoteWebDriver driver, BrowserFactory factory) {
+        return new Lease(null, null, driver, factory, null);
+    }
+
+    /**
+     * Borrows a browser and opens a fresh tab in it, blocking until a browser is available.
+     * @return a lease, which must be closed to return the browser to the pool.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public Lease acquire() throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Browser pool is closed");
+        }
+        permits.acquire();
+        try {
+            if (closed) {
+                // Closed while waiting for a browser
+                throw new IllegalStateException("Browser pool is closed");
+            }
+            PooledBrowser browser;
+            while ((browser = idle.poll()) != null) {
+                try {
+                    return browser.openTab();
+                } catch (WebDriverException e) {
+                    // Crashed or unresponsive since its last use, replace it
+                    discard(browser);
+                }
+            }
+            browser = new PooledBrowser(browserFactory.launch());
+            try {
+                return browser.openTab();
+            } catch (WebDriverException e) {
+                discard(browser);
+                throw e;
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Quits one idle browser, to make room for a browser of another pool.
+     * @return true if an idle browser was quit.
+     */
+    public boolean evictIdle() {
+        RemoteWebDriver driver = takeIdle();
+        if (driver == null) {
+            return false;
+        }
+        quit(driver);
+        return true;
+    }
+
+    /**
+     * Removes one idle browser from the pool without quitting it, so it can be quit outside of a lock.
+     * @return the browser, to be quit with {@link #quit(RemoteWebDriver)}, or null if no browser is idle.
+     */
+    RemoteWebDriver takeIdle() {
+        PooledBrowser browser = idle.poll();
+        return browser == null ? null : browser.driver;
+    }
+
+    void quit(RemoteWebDriver driver) {
+        browserFactory.quit(driver);
+    }
+
+    /**
+     * @return true once the pool is closed, it cannot lend browsers anymore.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Quits every idle browser of the pool. Leases still in use are quit when they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledBrowser browser;
+        while ((browser = idle.poll()) != null) {
+            discard(browser);
+        }
+    }
+
+    private void release(PooledBrowser browser, boolean healthy) {
+        try {
+            browser.uses++;
+            if (!healthy || closed || browser.uses >= maxUsesPerBrowser) {
+                discard(browser);
+            } else {
+                idle.offer(browser);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledBrowser browser) {
+        quit(browser.driver);
+    }
+
+    private final class PooledBrowser {
+        private final RemoteWebDriver driver;
+        private final String baseHandle;
+        private int uses;
+
+        private PooledBrowser(RemoteWebDriver driver) {
+            this.driver = driver;
+            this.baseHandle = driver.getWindowHandle();
+        }
+
+        private Lease openTab() {
+            driver.switchTo().window(baseHandle);
+            if (!keepSessions && driver instanceof HasDevTools) {
+                return openIsolatedTab(((HasDevTools) driver).getDevTools());
+            }
+            driver.switchTo().newWindow(WindowType.TAB);
+            return new Lease(BrowserPool.this, this, driver, browserFactory, null);
+        }
+
+        private Lease openIsolatedTab(DevTools devTools) {
+            // Browser contexts are managed by browser-level commands, outside of any tab session
+            devTools.disconnectSession();
+            BrowserContextID context = devTools.send(Target.createBrowserContext(
+                    Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty()));
+            try {
+                Set<String> handlesBefore = driver.getWindowHandles();
+                TargetID tab = devTools.send(Target.createTarget("about:blank", Optional.empty(), Optional.empty(),
+                        Optional.empty(), Optional.empty(), Optional.empty(), Optional.of(context), Optional.empty(),
+                        Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty()));
+                driver.switchTo().window(findHandle(tab.toString(), handlesBefore));
+                return new Lease(BrowserPool.this, this, driver, browserFactory, context);
+            } catch (RuntimeException e) {
+                devTools.send(Target.disposeBrowserContext(context));
+                throw e;
+            }
+        }
+
+        /**
+         * ChromeDriver uses the target ID as window handle, older versions derive their own handle from it.
+         */
+        private String findHandle(String targetId, Set<String> handlesBefore) {
+            Set<String> handles = driver.getWindowHandles();
+            if (handles.contains(targetId)) {
+                return targetId;
+            }
+            for (String handle : handles) {
+                if (!handlesBefore.contains(handle)) {
+                    return handle;
+                }
+            }
+            throw new WebDriverException("No window handle for the tab " + targetId);
+        }
+    }
+
+    /**
+     * A browser tab borrowed for a single task.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final BrowserPool pool;
+        private final PooledBrowser browser;
+        private final RemoteWebDriver driver;
+        private final BrowserFactory factory;
+        private final BrowserContextID browserContext;
+        private DevTools devTools;
+        private Runnable onClose;
+        private volatile boolean aborted;
+        private boolean released;
+
+        private Lease(BrowserPool pool, PooledBrowser browser, RemoteWebDriver driver, BrowserFactory factory,
+                      BrowserContextID browserContext) {
+            this.pool = pool;
+            this.browser = browser;
+            this.driver = driver;
+            this.factory = factory;
+            this.browserContext = browserContext;
+        }
+
+        public RemoteWebDriver getDriver() {
+            return driver;
+        }
+
+        /**
+         * @return a DevTools session attached to the tab of this lease, created on first use.
+         * @throws IllegalStateException if the browser does not expose DevTools.
+         */
+        public DevTools getDevTools() {
+            if (devTools == null) {
+                if (!(driver instanceof HasDevTools)) {
+                    throw new IllegalStateException("The browser does not expose DevTools: " + driver.getClass().getName());
+                }
+                devTools = ((HasDevTools) driver).getDevTools();
+                devTools.createSession(driver.getWindowHandle());
+            }
+            return devTools;
+        }
+
+        /**
+         * @param action an action run once the lease is closed, for example to release a permit held with it.
+         * @return this lease.
+         */
+        public Lease onClose(Runnable action) {
+            this.onClose = action;
+            return this;
+        }
+
+        /**
+         * Quits the browser from another thread, so a task blocked on it fails promptly.
+         * The browser is replaced when the lease is closed.
+         */
+        public void abort() {
+            aborted = true;
+            try {
+                driver.quit();
+            } catch (WebDriverException e) {
+                // Already gone
+            }
+        }
+
+        /**
+         * Closes the tab, discards its browser context, and returns the browser to the pool, or quits the browser if it
+         * is not pooled. A browser that fails to clean up is considered crashed and replaced.
+         */
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            try {
+                release();
+            } finally {
+                if (onClose != null) {
+                    onClose.run();
+                }
+            }
+        }
+
+        private void release() {
+            if (pool == null) {
+                factory.quit(driver);
+                return;
+            }
+            if (aborted) {
+                pool.release(browser, false);
+                return;
+            }
+            boolean healthy = true;
+            try {
+                if (devTools != null) {
+                    devTools.clearListeners();
+                    devTools.disconnectSession();
+                }
+                if (browserContext == null && !pool.keepSessions) {
+                    // No DevTools, WebDriver can only delete the cookies of the current page
+                    driver.manage().deleteAllCookies();
+                }
+                driver.close();
+                driver.switchTo().window(browser.baseHandle);
+                if (browserContext != null) {
+                    // Drops the cookies, storage and cache of the lease
+                    ((HasDevTools) driver).getDevTools().send(Target.disposeBrowserContext(browserContext));
+                }
+            } catch (WebDriverException e) {
+                healthy = false;
+            }
+            pool.release(browser, healthy);
+        }
+    }
+}
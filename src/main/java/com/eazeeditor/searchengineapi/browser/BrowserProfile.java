@@ -0,0 +1,194 @@
+package com.eazeeditor.searchengineapi.browser;
+
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable set of Chrome flags and settings a {@link BrowserManager} launches browsers with.
+ * Browsers are pooled per profile, so two equal profiles share the same warm browsers.
+ * A profile with a user data directory runs on a persistent Chrome profile: Chrome locks the directory,
+ * so at most one browser of such a profile runs at a time and its cookies are kept between tasks.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public final class BrowserProfile {
+
+    private static final List<String> BASE_ARGUMENTS = Arrays.asList(
+            "--disable-gpu",
+            "--no-sandbox",
+            "--disable-dev-shm-usage"
+    );
+
+    /**
+     * Viewport screenshots.
+     */
+    public static final BrowserProfile SCREENSHOT = new BrowserProfile("screenshot")
+            .withArguments("--headless=new", "--window-size=1920,1080");
+
+    /**
+     * Full-page screenshots, which keep rendering and timers running while the page is scrolled off screen.
+     */
+    public static final BrowserProfile SCREENSHOT_EXTENDED = SCREENSHOT.named("screenshot-extended")
+            .withArguments(
+                    "--disable-web-security",
+                    "--disable-features=VizDisplayCompositor",
+                    "--disable-background-timer-throttling",
+                    "--disable-renderer-backgrounding",
+                    "--disable-backgrounding-occluded-windows");
+
+    /**
+     * Google search scraping in a visible browser, looking like a regular desktop Chrome.
+     */
+    public static final BrowserProfile SEARCH = new BrowserProfile("search")
+            .withArguments(
+                    "--window-size=1920,1200",
+                    "--ignore-certificate-errors",
+                    "--disable-extensions",
+                    "user-agent=Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/125.0.0.0 Safari/537.36")
+            .withExperimentalOption("excludeSwitches", Collections.singletonList("enable-automation"));
+
+    /**
+     * Google search scraping in a headless browser.
+     */
+    public static final BrowserProfile SEARCH_HEADLESS = SEARCH.named("search-headless").withArguments("--headless=new");
+
+    /**
+     * Rendering pages whose source is downloaded.
+     */
+    public static final BrowserProfile DOWNLOAD = new BrowserProfile("download")
+            .withArguments("--headless=new", "--window-size=1920,1080");
+
+    private final String name;
+    private final List<String> arguments;
+    private final String userDataDir;
+    private final String profileDirectory;
+    private final Map<String, Object> experimentalOptions;
+
+    /**
+     * Creates a profile with the base flags shared by every workload.
+     * @param name the name of the profile, for logging.
+     */
+    public BrowserProfile(String name) {
+        this(name, BASE_ARGUMENTS, null, null, Collections.emptyMap());
+    }
+
+    private BrowserProfile(String name, List<String> arguments, String userDataDir, String profileDirectory,
+                           Map<String, Object> experimentalOptions) {
+        this.name = name;
+        this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+        this.userDataDir = userDataDir;
+        this.profileDirectory = profileDirectory;
+        this.experimentalOptions = Collections.unmodifiableMap(new LinkedHashMap<>(experimentalOptions));
+    }
+
+    public BrowserProfile named(String name) {
+        return new BrowserProfile(name, arguments, userDataDir, profileDirectory, experimentalOptions);
+    }
+
+    /**
+     * @param additionalArguments flags appended to the flags of this profile.
+     * @return a copy of this profile with the additional flags.
+     */
+    public BrowserProfile withArguments(String... additionalArguments) {
+        List<String> combined = new ArrayList<>(arguments);
+        combined.addAll(Arrays.asList(additionalArguments));
+        return new BrowserProfile(name, combined, userDataDir, profileDirectory, experimentalOptions);
+    }
+
+    /**
+     * @param userDataDir the Chrome user data directory, or null for a throwaway profile.
+     * @return a copy of this profile running on the given user data directory.
+     */
+    public BrowserProfile withUserDataDir(String userDataDir) {
+        String dir = userDataDir == null || userDataDir.isEmpty() ? null : userDataDir;
+        return new BrowserProfile(name, arguments, dir, profileDirectory, experimentalOptions);
+    }
+
+    /**
+     * @param profileDirectory the profile inside the user data directory, such as "Default".
+     * @return a copy of this profile using the given profile directory.
+     */
+    public BrowserProfile withProfileDirectory(String profileDirectory) {
+        return new BrowserProfile(name, arguments, userDataDir, profileDirectory, experimentalOptions);
+    }
+
+    public BrowserProfile withExperimentalOption(String key, Object value) {
+        Map<String, Object> options = new LinkedHashMap<>(experimentalOptions);
+        options.put(key, value);
+        return new BrowserProfile(name, arguments, userDataDir, profileDirectory, options);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getArguments() {
+        return arguments;
+    }
+
+    public String getUserDataDir() {
+        return userDataDir;
+    }
+
+    /**
+     * @return true if the profile runs on a user data directory, see the class documentation.
+     */
+    public boolean isPersistent() {
+        return userDataDir != null;
+    }
+
+    /**
+     * @param chromeBinary the Chrome binary, or null to let ChromeDriver locate it.
+     * @return the Chrome options of this profile.
+     */
+    public ChromeOptions toChromeOptions(String chromeBinary) {
+        ChromeOptions options = new ChromeOptions();
+        if (chromeBinary != null && !chromeBinary.isEmpty()) {
+            options.setBinary(chromeBinary);
+        }
+        options.addArguments(arguments);
+        if (userDataDir != null) {
+            options.addArguments("--user-data-dir=" + userDataDir);
+        }
+        if (profileDirectory != null) {
+            options.addArguments("--profile-directory=" + profileDirectory);
+        }
+        experimentalOptions.forEach(options::setExperimentalOption);
+        return options;
+    }
+
+    /**
+     * Profiles are equal when they launch identical browsers, the name is not compared.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BrowserProfile)) {
+            return false;
+        }
+        BrowserProfile that = (BrowserProfile) o;
+        return arguments.equals(that.arguments)
+                && Objects.equals(userDataDir, that.userDataDir)
+                && Objects.equals(profileDirectory, that.profileDirectory)
+                && experimentalOptions.equals(that.experimentalOptions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(arguments, userDataDir, profileDirectory, experimentalOptions);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,60 @@
+package com.eazeeditor.searchengineapi.browser;
+
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+/**
+ * Launches Chrome on the local machine through ChromeDriver. It is the default endpoint of a {@link BrowserManager},
+ * and a local stand-in for a remote fleet in tests: both serve the same profiles through the same interface.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class LocalBrowserEndpoint implements BrowserEndpoint {
+
+    private final String chromeBinary;
+    private final int capacity;
+
+    /**
+     * Creates an endpoint limited only by the capacity of the manager.
+     * @param chromeBinary the Chrome binary, or null to let ChromeDriver locate it.
+     */
+    public LocalBrowserEndpoint(String chromeBinary) {
+        this(chromeBinary, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param chromeBinary the Chrome binary, or null to let ChromeDriver locate it.
+     * @param capacity     the maximum number of local browsers.
+     */
+    public LocalBrowserEndpoint(String chromeBinary, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.chromeBinary = chromeBinary;
+        this.capacity = capacity;
+    }
+
+    public String getChromeBinary() {
+        return chromeBinary;
+    }
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public RemoteWebDriver launch(BrowserProfile profile) {
+        return new ChromeDriver(profile.toChromeOptions(chromeBinary));
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,96 @@
+package com.eazeeditor.searchengineapi.browser;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Network cost of a page load under a {@link BlockProfile}, as reported by {@link RequestInterceptor#collectStats}.
+ * Blocked requests never reach the network, so their size is unknown; the savings of a profile are measured
+ * against a baseline load of the same page with {@link BlockProfile#NONE}.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class PageLoadStats {
+
+    private final String url;
+    private final String profileName;
+    private final Map<String, Integer> blockedByType;
+    private final long transferredBytes;
+    private final int loadedResources;
+    private final long loadTimeMillis;
+
+    public PageLoadStats(String url, String profileName, Map<String, Integer> blockedByType,
+                         long transferredBytes, int loadedResources, long loadTimeMillis) {
+        this.url = url;
+        this.profileName = profileName;
+        this.blockedByType = Collections.unmodifiableMap(blockedByType);
+        this.transferredBytes = transferredBytes;
+        this.loadedResources = loadedResources;
+        this.loadTimeMillis = loadTimeMillis;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getProfileName() {
+        return profileName;
+    }
+
+    /**
+     * @return the number of blocked requests per resource type.
+     */
+    public Map<String, Integer> getBlockedByType() {
+        return blockedByType;
+    }
+
+    public int getBlockedRequests() {
+        return blockedByType.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return the bytes transferred for the document and the resources that loaded, headers included.
+     */
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    public int getLoadedResources() {
+        return loadedResources;
+    }
+
+    /**
+     * @return the time from navigation start to the end of the load event, or to DOMContentLoaded if the load event
+     * has not finished when the statistics are collected.
+     */
+    public long getLoadTimeMillis() {
+        return loadTimeMillis;
+    }
+
+    /**
+     * @param baseline a load of the same page with {@link BlockProfile#NONE}.
+     * @return the bytes this load saved compared to the baseline.
+     */
+    public long getBytesSavedComparedTo(PageLoadStats baseline) {
+        return Math.max(0, baseline.transferredBytes - transferredBytes);
+    }
+
+    /**
+     * @param baseline a load of the same page with {@link BlockProfile#NONE}.
+     * @return the load time this load saved compared to the baseline.
+     */
+    public long getTimeSavedComparedTo(PageLoadStats baseline) {
+        return Math.max(0, baseline.loadTimeMillis - loadTimeMillis);
+    }
+
+    @Override
+    public String toString() {
+        String blocked = blockedByType.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining(", "));
+        return String.format("[%s] %s: %d bytes in %d resources loaded in %d ms, %d requests blocked%s",
+                profileName, url, transferredBytes, loadedResources, loadTimeMillis, getBlockedRequests(),
+                blocked.isEmpty() ? "" : " (" + blocked + ")");
+    }
+}
@@ -0,0 +1,80 @@
+package com.eazeeditor.searchengineapi.browser;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.Augmenter;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Starts Chrome sessions on a remote WebDriver endpoint, such as a Selenium Grid hub or node, or a hosted browser
+ * service speaking the WebDriver protocol. The session is augmented with the DevTools connection the endpoint advertises
+ * in its {@code se:cdp} capability, so request blocking and CDP screenshots work as they do on a local browser.
+ * The flags of the profile are sent as the Chrome options of the session, a user data directory is a path on the remote host.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class RemoteBrowserEndpoint implements BrowserEndpoint {
+
+    private final URL url;
+    private final int capacity;
+
+    /**
+     * @param url      the WebDriver endpoint, for example {@code http://grid:4444}.
+     * @param capacity the maximum number of sessions to run on the endpoint at once, usually its number of slots.
+     */
+    public RemoteBrowserEndpoint(URL url, int capacity) {
+        if (url == null) {
+            throw new IllegalArgumentException("url cannot be null");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.url = url;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param url      the WebDriver endpoint, for example {@code http://grid:4444}.
+     * @param capacity the maximum number of sessions to run on the endpoint at once, usually its number of slots.
+     * @throws IllegalArgumentException if the URL is malformed.
+     */
+    public RemoteBrowserEndpoint(String url, int capacity) {
+        this(parseUrl(url), capacity);
+    }
+
+    private static URL parseUrl(String url) {
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid endpoint URL: " + url, e);
+        }
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    @Override
+    public String getName() {
+        return url.getAuthority();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public RemoteWebDriver launch(BrowserProfile profile) {
+        RemoteWebDriver driver = new RemoteWebDriver(url, profile.toChromeOptions(null));
+        WebDriver augmented = new Augmenter().augment(driver);
+        return (RemoteWebDriver) augmented;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,122 @@
+package com.eazeeditor.searchengineapi.browser;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.v142.fetch.Fetch;
+import org.openqa.selenium.devtools.v142.fetch.model.RequestPattern;
+import org.openqa.selenium.devtools.v142.fetch.model.RequestStage;
+import org.openqa.selenium.devtools.v142.network.model.ErrorReason;
+import org.openqa.selenium.devtools.v142.page.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Blocks the requests of a {@link BlockProfile} in a browser tab through the DevTools Fetch domain.
+ * Only requests matching the profile are paused, and they are failed with {@code BlockedByClient} at the request stage,
+ * so they never reach the network. Everything else loads without a round trip through the client.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class RequestInterceptor {
+
+    /**
+     * Reads the transferred bytes and the load time of the current page from the Navigation and Resource Timing APIs.
+     */
+    private static final String PAGE_LOAD_SCRIPT = """
+            var nav = performance.getEntriesByType('navigation')[0];
+            var resources = performance.getEntriesByType('resource');
+            var bytes = nav ? nav.transferSize : 0;
+            for (var i = 0; i < resources.length; i++) { bytes += resources[i].transferSize || 0; }
+            var load = nav ? (nav.loadEventEnd > 0 ? nav.loadEventEnd : nav.domContentLoadedEventEnd) : 0;
+            return {bytes: bytes, resources: resources.length, load: Math.round(load)};
+            """;
+
+    private final DevTools devTools;
+    private final BlockProfile profile;
+    private final Map<String, AtomicInteger> blockedByType = new ConcurrentHashMap<>();
+
+    private RequestInterceptor(DevTools devTools, BlockProfile profile) {
+        this.devTools = devTools;
+        this.profile = profile;
+    }
+
+    /**
+     * Starts blocking in the tab of a DevTools session. Call it before navigating.
+     * @param devTools a DevTools session attached to the tab.
+     * @param profile  the requests to block.
+     * @return the interceptor, to collect the statistics of the page once it has loaded.
+     */
+    public static RequestInterceptor attach(DevTools devTools, BlockProfile profile) {
+        RequestInterceptor interceptor = new RequestInterceptor(devTools, profile);
+        interceptor.enable();
+        return interceptor;
+    }
+
+    public BlockProfile getProfile() {
+        return profile;
+    }
+
+    private void enable() {
+        // The resource timing buffer holds 250 entries by default, enough to truncate the statistics of heavy pages
+        devTools.send(Page.addScriptToEvaluateOnNewDocument(
+                "performance.setResourceTimingBufferSize(10000);",
+                Optional.empty(), Optional.empty(), Optional.empty()));
+
+        // Fetch.enable without patterns pauses every request, so an empty profile must not enable it
+        if (profile.isEmpty()) {
+            return;
+        }
+        List<RequestPattern> patterns = new ArrayList<>();
+        profile.getResourceTypes().forEach(type ->
+                patterns.add(new RequestPattern(Optional.of("*"), Optional.of(type), Optional.of(RequestStage.REQUEST))));
+        profile.getUrlPatterns().forEach(urlPattern ->
+                patterns.add(new RequestPattern(Optional.of(urlPattern), Optional.empty(), Optional.of(RequestStage.REQUEST))));
+
+        devTools.addListener(Fetch.requestPaused(), paused -> {
+            blockedByType.computeIfAbsent(paused.getResourceType().toString(), type -> new AtomicInteger()).incrementAndGet();
+            try {
+                devTools.send(Fetch.failRequest(paused.getRequestId(), ErrorReason.BLOCKEDBYCLIENT));
+            } catch (WebDriverException e) {
+                // The tab navigated away or closed in the meantime
+            }
+        });
+        devTools.send(Fetch.enable(Optional.of(patterns), Optional.of(false)));
+    }
+
+    /**
+     * Stops blocking, the requests paused in the meantime are released by Chrome.
+     */
+    public void detach() {
+        if (profile.isEmpty()) {
+            return;
+        }
+        try {
+            devTools.send(Fetch.disable());
+        } catch (WebDriverException e) {
+            // Session already gone
+        }
+    }
+
+    /**
+     * @param driver the driver of the tab.
+     * @param url    the URL of the page, for reporting.
+     * @return the statistics of the page currently loaded in the tab.
+     */
+    public PageLoadStats collectStats(JavascriptExecutor driver, String url) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> timing = (Map<String, Object>) driver.executeScript(PAGE_LOAD_SCRIPT);
+        Map<String, Integer> blocked = new TreeMap<>();
+        blockedByType.forEach((type, count) -> blocked.put(type, count.get()));
+        return new PageLoadStats(url, profile.getName(), blocked,
+                ((Number) timing.get("bytes")).longValue(),
+                ((Number) timing.get("resources")).intValue(),
+                ((Number) timing.get("load")).longValue());
+    }
+}
@@ -0,0 +1,154 @@
+package com.eazeeditor.searchengineapi.provisioning;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append-only progress journal of a {@link ProvisioningPipeline}, one JSON line per completed stage of a tenant.
+ * Every line is forced to disk before the pipeline moves on, so a restarted run resumes each tenant after its last
+ * completed stage. A line torn by a crash is ignored, that stage simply runs again.
+ * The journal holds the created API keys, so a new journal is created readable by its owner only.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class ProvisioningJournal implements AutoCloseable {
+
+    private static final Gson GSON = new Gson();
+
+    private final FileChannel channel;
+    private final Map<String, Map<ProvisioningPipeline.Stage, String>> progress = new HashMap<>();
+
+    private ProvisioningJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a journal, replaying the progress recorded by earlier runs.
+     * @param file the journal file, created if it does not exist.
+     * @return the journal.
+     * @throws IOException if the journal cannot be read or opened for appending.
+     */
+    public static ProvisioningJournal open(Path file) throws IOException {
+        ProvisioningJournal journal = new ProvisioningJournal(openChannel(file));
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry;
+                try {
+                    entry = GSON.fromJson(line, Entry.class);
+                } catch (JsonParseException e) {
+                    continue; // Torn by a crash
+                }
+                if (entry != null && entry.tenantId != null && entry.stage != null) {
+                    journal.remember(entry);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * Opens the journal for appending. A new journal is owner-only from creation, like the API key registry, as it
+     * holds the API keys of every tenant.
+     */
+    private static FileChannel openChannel(Path file) throws IOException {
+        Set<StandardOpenOption> options = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            return FileChannel.open(file, options, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system, the file inherits the permissions of its directory
+            return FileChannel.open(file, options);
+        }
+    }
+
+    /**
+     * @param tenantId the tenant.
+     * @return the outcome of every stage the tenant completed, by stage.
+     */
+    public synchronized Map<ProvisioningPipeline.Stage, String> getCompletedStages(String tenantId) {
+        Map<ProvisioningPipeline.Stage, String> stages = progress.get(tenantId);
+        return stages != null ? new EnumMap<>(stages) : Collections.emptyMap();
+    }
+
+    /**
+     * Appends the completion of a stage and forces it to disk.
+     * @param tenantId the tenant.
+     * @param stage    the completed stage.
+     * @param outcome  what the stage produced, such as the project ID.
+     * @throws IOException if the journal cannot be written.
+     */
+    public synchronized void record(String tenantId, ProvisioningPipeline.Stage stage, String outcome) throws IOException {
+        append(new Entry(tenantId, stage, outcome, System.currentTimeMillis()));
+    }
+
+    /**
+     * Appends the reset of a stage and forces it to disk, the stage runs again on the next run.
+     * @param tenantId the tenant.
+     * @param stage    the stage whose outcome can no longer be used, such as a key creation that failed.
+     * @throws IOException if the journal cannot be written.
+     */
+    public synchronized void reset(String tenantId, ProvisioningPipeline.Stage stage) throws IOException {
+        // An entry without outcome
+        append(new Entry(tenantId, stage, null, System.currentTimeMillis()));
+    }
+
+    private void append(Entry entry) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((GSON.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            channel.write(line);
+        }
+        channel.force(false);
+        remember(entry);
+    }
+
+    private void remember(Entry entry) {
+        Map<ProvisioningPipeline.Stage, String> stages = progress.computeIfAbsent(entry.tenantId,
+                id -> new EnumMap<>(ProvisioningPipeline.Stage.class));
+        if (entry.outcome == null) {
+            stages.remove(entry.stage);
+        } else {
+            stages.put(entry.stage, entry.outcome);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static class Entry {
+        private String tenantId;
+        private ProvisioningPipeline.Stage stage;
+        private String outcome;
+        private long completedAtMillis;
+
+        private Entry() {
+        }
+
+        private Entry(String tenantId, ProvisioningPipeline.Stage stage, String outcome, long completedAtMillis) {
+            this.tenantId = tenantId;
+            this.stage = stage;
+            this.outcome = outcome;
+            this.completedAtMillis = completedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.eazeeditor.searchengineapi.provisioning;
+
+import com.eazeeditor.searchengineapi.ApiKeyService;
+import com.eazeeditor.searchengineapi.GoogleApiService;
+import com.eazeeditor.searchengineapi.GoogleClientFactory;
+import com.eazeeditor.searchengineapi.GoogleProjectService;
+import com.eazeeditor.searchengineapi.OperationWaiter;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.http.HttpTransport;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Provisions many tenants concurrently: for each one it selects or creates the project, enables the required APIs,
+ * starts the creation of a restricted API key and waits for the key. Each stage has its own parallelism limit, so
+ * quota-heavy calls such as project creation stay throttled while the other stages keep going.
+ * Completed stages are recorded in a {@link ProvisioningJournal}, and a restarted run resumes every tenant where it
+ * stopped. All tenants share one client factory and one credential, whose access token is refreshed once for everyone.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class ProvisioningPipeline implements AutoCloseable {
+
+    /**
+     * The stages of a tenant, in order.
+     */
+    public enum Stage {
+        PROJECT,
+        APIS,
+        KEY_OPERATION,
+        KEY
+    }
+
+    /**
+     * Default number of tenants provisioned at once.
+     */
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    /**
+     * Default parallelism of project creation, which has the tightest quota.
+     */
+    public static final int DEFAULT_PROJECT_PARALLELISM = 4;
+
+    /**
+     * A stage of a tenant, returning what it produced.
+     */
+    private interface StageAction {
+        String run() throws IOException, InterruptedException;
+    }
+
+    private final Credential credential;
+    private final ProvisioningJournal journal;
+    private final GoogleProjectService projectService;
+    private final GoogleApiService apiService;
+    private final ApiKeyService apiKeyService;
+    private final Map<Stage, Semaphore> stageLimits = new EnumMap<>(Stage.class);
+    private final Map<String, Object> projectLocks = new ConcurrentHashMap<>();
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /**
+     * @param credential  Authorized Credential object, shared by all tenants.
+     * @param journalPath The progress journal, created if it does not exist.
+     * @throws IOException If the journal cannot be opened.
+     */
+    public ProvisioningPipeline(Credential credential, String journalPath) throws IOException {
+        this(credential, GoogleClientFactory.getDefault(), journalPath);
+    }
+
+    /**
+     * @param credential  Authorized Credential object, shared by all tenants.
+     * @param transport   The HTTP transport, shared by all tenants.
+     * @param journalPath The progress journal, created if it does not exist.
+     * @throws IOException If the journal cannot be opened.
+     */
+    public ProvisioningPipeline(Credential credential, HttpTransport transport, String journalPath) throws IOException {
+        this(credential, new GoogleClientFactory(transport), journalPath);
+    }
+
+    /**
+     * @param credential    Authorized Credential object, shared by all tenants.
+     * @param clientFactory The factory of the Google API clients, shared by all tenants.
+     * @param journalPath   The progress journal, created if it does not exist.
+     * @throws IOException If the journal cannot be opened.
+     */
+    public ProvisioningPipeline(Credential credential, GoogleClientFactory clientFactory, String journalPath) throws IOException {
+        this.credential = credential;
+        this.journal = ProvisioningJournal.open(Paths.get(journalPath));
+        this.projectService = new GoogleProjectService(clientFactory);
+        this.apiService = new GoogleApiService(clientFactory);
+        this.apiKeyService = new ApiKeyService(clientFactory);
+        for (Stage stage : Stage.values()) {
+            stageLimits.put(stage, new Semaphore(DEFAULT_CONCURRENCY, true));
+        }
+        stageLimits.put(Stage.PROJECT, new Semaphore(DEFAULT_PROJECT_PARALLELISM, true));
+    }
+
+    /**
+     * @param concurrency The number of tenants provisioned at once.
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param stage       The stage to limit.
+     * @param parallelism The number of tenants that may run the stage at once.
+     */
+    public void setStageParallelism(Stage stage, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        stageLimits.put(stage, new Semaphore(parallelism, true));
+    }
+
+    /**
+     * Points all services to another endpoint than Google's, such as a proxy in front of the Resource Manager,
+     * Service Usage and API Keys APIs.
+     * @param rootUrl The root URL, or null for the Google endpoints.
+     */
+    public void setRootUrl(String rootUrl) {
+        projectService.setRootUrl(rootUrl);
+        apiService.setRootUrl(rootUrl);
+        apiKeyService.setRootUrl(rootUrl);
+    }
+
+    /**
+     * @param operationWaiter The waiter used by every stage for long-running operations.
+     */
+    public void setOperationWaiter(OperationWaiter operationWaiter) {
+        projectService.setOperationWaiter(operationWaiter);
+        apiService.setOperationWaiter(operationWaiter);
+        apiKeyService.setOperationWaiter(operationWaiter);
+    }
+
+    /**
+     * Provisions the tenants, resuming those the journal shows as partially or fully provisioned.
+     * Failures never propagate, they are recorded in the results and the failed stage runs again on the next run.
+     *
+     * @param tasks The tenants to provision.
+     * @return One result per tenant, in the order of the tasks.
+     * @throws InterruptedException If the thread is interrupted while waiting for the tenants.
+     */
+    public List<ProvisioningResult> provisionAll(List<ProvisioningTask> tasks) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(concurrency, Math.max(tasks.size(), 1)));
+        try {
+            List<Future<ProvisioningResult>> futures = new ArrayList<>(tasks.size());
+            for (ProvisioningTask task : tasks) {
+                futures.add(workers.submit(() -> provision(task)));
+            }
+            List<ProvisioningResult> results = new ArrayList<>(tasks.size());
+            for (Future<ProvisioningResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // provision records every failure, anything reaching here is a bug
+                    throw new IllegalStateException("Provisioning crashed", e.getCause());
+                }
+            }
+            long succeeded = results.stream().filter(ProvisioningResult::isSuccessful).count();
+            System.out.println("Provisioned " + succeeded + " of " + results.size() + " tenants");
+            return results;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private ProvisioningResult provision(ProvisioningTask task) {
+        long startedAt = System.currentTimeMillis();
+        String tenantId = task.getTenantId();
+        Map<Stage, String> completed = journal.getCompletedStages(tenantId);
+        String projectId = completed.get(Stage.PROJECT);
+        Stage stage = Stage.PROJECT;
+        try {
+            if (projectId == null) {
+                // Tenants sharing a project name must not both create it, the second one selects the project of the first
+                synchronized (projectLocks.computeIfAbsent(task.getProjectName(), name -> new Object())) {
+                    projectId = runStage(tenantId, stage, () -> projectService.selectOrCreateProject(credential, task.getProjectName()));
+                }
+            }
+            String project = projectId;
+
+            stage = Stage.APIS;
+            if (!completed.containsKey(stage)) {
+                runStage(tenantId, stage, () -> {
+                    apiService.enableApis(credential, project);
+                    return "ENABLED";
+                });
+            }
+
+            stage = Stage.KEY_OPERATION;
+            String apiKey = completed.get(Stage.KEY);
+            String operationName = completed.get(stage);
+            if (apiKey == null && operationName == null) {
+                // A crash between the key creation and its journal entry, or a reset, can leave a key behind
+                String existingKey = apiKeyService.findApiKeyByDisplayName(credential, project, ApiKeyService.DEFAULT_KEY_DISPLAY_NAME);
+                if (existingKey != null) {
+                    stage = Stage.KEY;
+                    apiKey = runStage(tenantId, stage, () -> apiKeyService.getKeyString(credential, existingKey));
+                } else {
+                    operationName = runStage(tenantId, stage, () -> apiKeyService.createRestrictedApiKey(credential, project));
+                }
+            }
+
+            if (apiKey == null) {
+                stage = Stage.KEY;
+                String operation = operationName;
+                try {
+                    apiKey = runStage(tenantId, stage, () -> apiKeyService.awaitKeyString(credential, operation));
+                } catch (ApiKeyService.KeyCreationFailedException e) {
+                    // The operation is dead, the next run starts a new one instead of waiting for it again
+                    journal.reset(tenantId, Stage.KEY_OPERATION);
+                    throw e;
+                }
+            }
+            return new ProvisioningResult(tenantId, projectId, apiKey, null, null, completed.size(),
+                    System.currentTimeMillis() - startedAt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ProvisioningResult(tenantId, projectId, null, stage, "Interrupted", completed.size(),
+                    System.currentTimeMillis() - startedAt);
+        } catch (Exception e) {
+            System.err.println("Failed to provision tenant " + tenantId + " at stage " + stage + " - " + e.getMessage());
+            return new ProvisioningResult(tenantId, projectId, null, stage, e.toString(), completed.size(),
+                    System.currentTimeMillis() - startedAt);
+        }
+    }
+
+    /**
+     * Runs a stage within its parallelism limit and journals its outcome.
+     */
+    private String runStage(String tenantId, Stage stage, StageAction action) throws IOException, InterruptedException {
+        Semaphore limit = stageLimits.get(stage);
+        limit.acquire();
+        String outcome;
+        try {
+            outcome = action.run();
+        } finally {
+            limit.release();
+        }
+        journal.record(tenantId, stage, outcome);
+        return outcome;
+    }
+
+    /**
+     * Closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+}
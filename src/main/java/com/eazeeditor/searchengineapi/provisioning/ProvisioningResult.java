@@ -0,0 +1,81 @@
+package com.eazeeditor.searchengineapi.provisioning;
+
+/**
+ * Outcome of a {@link ProvisioningTask}.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class ProvisioningResult {
+
+    private final String tenantId;
+    private final String projectId;
+    private final String apiKey;
+    private final ProvisioningPipeline.Stage failedStage;
+    private final String error;
+    private final int resumedStages;
+    private final long durationMillis;
+
+    public ProvisioningResult(String tenantId, String projectId, String apiKey, ProvisioningPipeline.Stage failedStage,
+                              String error, int resumedStages, long durationMillis) {
+        this.tenantId = tenantId;
+        this.projectId = projectId;
+        this.apiKey = apiKey;
+        this.failedStage = failedStage;
+        this.error = error;
+        this.resumedStages = resumedStages;
+        this.durationMillis = durationMillis;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    /**
+     * @return the project ID, or null if the project stage failed.
+     */
+    public String getProjectId() {
+        return projectId;
+    }
+
+    /**
+     * @return the key string of the API key, or null if provisioning failed.
+     */
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    /**
+     * @return the stage that failed, or null if provisioning succeeded.
+     */
+    public ProvisioningPipeline.Stage getFailedStage() {
+        return failedStage;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the number of stages skipped because the journal recorded them as done by an earlier run.
+     */
+    public int getResumedStages() {
+        return resumedStages;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return tenantId + ": " + (isSuccessful()
+                ? "project " + projectId + ", API key ready"
+                : "failed at " + failedStage + " - " + error)
+                + (resumedStages > 0 ? ", " + resumedStages + " stages resumed" : "")
+                + " (" + durationMillis + " ms)";
+    }
+}
@@ -0,0 +1,35 @@
+package com.eazeeditor.searchengineapi.provisioning;
+
+/**
+ * A tenant to provision: a Google Cloud project with the required APIs enabled and a restricted API key.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class ProvisioningTask {
+
+    private final String tenantId;
+    private final String projectName;
+
+    /**
+     * @param tenantId    the stable identifier of the tenant, the key of its progress in the journal.
+     * @param projectName the display name of the tenant's project, an existing active project with this name is reused.
+     */
+    public ProvisioningTask(String tenantId, String projectName) {
+        if (tenantId == null || tenantId.isEmpty()) {
+            throw new IllegalArgumentException("tenantId cannot be null or empty");
+        }
+        if (projectName == null || projectName.isEmpty()) {
+            throw new IllegalArgumentException("projectName cannot be null or empty");
+        }
+        this.tenantId = tenantId;
+        this.projectName = projectName;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+}
@@ -0,0 +1,77 @@
+package com.eazeeditor.searchengineapi.screenshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+
+/**
+ * Decodes Base64 screenshot data as returned by the DevTools protocol without materializing the decoded image,
+ * either straight into a file or as a stream for an image reader. The work buffers are a fixed {@link #CHUNK_SIZE}.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public final class Base64Streams {
+
+    /**
+     * Size of the buffer decoded bytes are written through.
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private Base64Streams() {
+    }
+
+    /**
+     * Decodes Base64 data into a file, replacing it if it exists.
+     * @param base64 the Base64 data, without line breaks.
+     * @param target the file to write.
+     * @return the number of decoded bytes written.
+     * @throws IOException if the data is not valid Base64 or the file cannot be written.
+     */
+    public static long write(String base64, Path target) throws IOException {
+        byte[] decoded = new byte[CHUNK_SIZE];
+        long written = 0;
+        try (InputStream in = open(base64);
+             FileChannel channel = FileChannel.open(target,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = in.read(decoded)) != -1) {
+                ByteBuffer buffer = ByteBuffer.wrap(decoded, 0, read);
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer);
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @param base64 the Base64 data, without line breaks.
+     * @return a stream of the decoded bytes.
+     */
+    public static InputStream open(String base64) {
+        return Base64.getDecoder().wrap(new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                return position < base64.length() ? base64.charAt(position++) : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (position >= base64.length()) {
+                    return -1;
+                }
+                int count = Math.min(len, base64.length() - position);
+                for (int i = 0; i < count; i++) {
+                    b[off + i] = (byte) base64.charAt(position++);
+                }
+                return count;
+            }
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.eazeeditor.searchengineapi.screenshot;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Difference hash (dHash) of an image: the image is reduced to 9x8 grayscale cells, and each of the 64 bits tells
+ * whether a cell is brighter than its right neighbour. Visually identical captures get the same hash whatever their
+ * encoding, and the number of differing bits grows with the visual change, which makes it a cheap change score.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public final class PerceptualHash {
+
+    private static final int HASH_WIDTH = 8;
+    private static final int HASH_HEIGHT = 8;
+
+    /**
+     * Images are decoded with subsampling down to about this many pixels per side, which keeps the memory and time
+     * of hashing a very long capture bounded. The 9x8 cells average many sampled pixels either way.
+     */
+    private static final int SAMPLE_SIZE = 512;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * @param image an image file in a format ImageIO can decode, such as PNG or JPEG.
+     * @return the 64-bit difference hash of the image.
+     * @throws IOException if the file cannot be read or decoded.
+     */
+    public static long dHash(Path image) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(image.toFile())) {
+            if (input == null) {
+                throw new IOException("Cannot open " + image);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("No image decoder for " + image);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int xStep = Math.max(1, reader.getWidth(0) / SAMPLE_SIZE);
+                int yStep = Math.max(1, reader.getHeight(0) / SAMPLE_SIZE);
+                param.setSourceSubsampling(xStep, yStep, 0, 0);
+                return dHash(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * @param image the image.
+     * @return the 64-bit difference hash of the image.
+     */
+    public static long dHash(BufferedImage image) {
+        int cellsX = HASH_WIDTH + 1;
+        double[] luminance = new double[cellsX * HASH_HEIGHT];
+        int[] counts = new int[luminance.length];
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellY = Math.min(HASH_HEIGHT - 1, y * HASH_HEIGHT / height);
+            for (int x = 0; x < width; x++) {
+                int cell = cellY * cellsX + Math.min(cellsX - 1, x * cellsX / width);
+                int rgb = row[x];
+                luminance[cell] += 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                counts[cell]++;
+            }
+        }
+        for (int i = 0; i < luminance.length; i++) {
+            // A cell is empty only for images smaller than the grid
+            luminance[i] = counts[i] > 0 ? luminance[i] / counts[i] : 0;
+        }
+
+        long hash = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            for (int x = 0; x < HASH_WIDTH; x++) {
+                hash <<= 1;
+                if (luminance[y * cellsX + x] > luminance[y * cellsX + x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return the number of differing bits between two hashes, from 0 (identical) to 64.
+     */
+    public static int distance(long hash, long otherHash) {
+        return Long.bitCount(hash ^ otherHash);
+    }
+
+    /**
+     * @return the share of differing bits between two hashes, from 0 (identical) to 1.
+     */
+    public static double diffScore(long hash, long otherHash) {
+        return distance(hash, otherHash) / 64.0;
+    }
+
+    public static String toHex(long hash) {
+        return String.format("%016x", hash);
+    }
+
+    public static long fromHex(String hex) {
+        return Long.parseUnsignedLong(hex, 16);
+    }
+}
@@ -0,0 +1,117 @@
+package com.eazeeditor.searchengineapi.screenshot;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Perceptual hash of the last stored capture of every URL and capture mode, kept as a JSON file so change detection
+ * works across runs. See {@link ScreenshotService#setChangeDetection(String, int)}.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class ScreenshotHashIndex {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Type ENTRIES_TYPE = new TypeToken<LinkedHashMap<String, Entry>>() {}.getType();
+
+    private final Path file;
+    private final Map<String, Entry> entries;
+
+    private ScreenshotHashIndex(Path file, Map<String, Entry> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads an index, or returns an empty one if the file does not exist yet.
+     * @param file the index file.
+     * @return the index.
+     * @throws IOException if an existing index cannot be read.
+     */
+    public static ScreenshotHashIndex load(Path file) throws IOException {
+        Map<String, Entry> entries = null;
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                entries = GSON.fromJson(reader, ENTRIES_TYPE);
+            }
+        }
+        return new ScreenshotHashIndex(file, entries != null ? entries : new LinkedHashMap<>());
+    }
+
+    /**
+     * @return the key of a capture of a URL in a mode, a long and a viewport capture of a page are tracked separately.
+     */
+    public static String key(ScreenshotJob.Mode mode, String url) {
+        return mode + " " + url;
+    }
+
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    /**
+     * Writes the index through a temporary file, so an interrupted run never leaves a truncated index.
+     * @throws IOException if the index cannot be written.
+     */
+    public synchronized void save() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            GSON.toJson(entries, ENTRIES_TYPE, writer);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The last stored capture of a URL.
+     */
+    public static class Entry {
+        private String hash;
+        private String localPath;
+        private long capturedAtMillis;
+
+        public Entry() {
+        }
+
+        public Entry(long hash, String localPath, long capturedAtMillis) {
+            this.hash = PerceptualHash.toHex(hash);
+            this.localPath = localPath;
+            this.capturedAtMillis = capturedAtMillis;
+        }
+
+        public long getHash() {
+            return PerceptualHash.fromHex(hash);
+        }
+
+        /**
+         * @return the file the capture was stored at.
+         */
+        public String getLocalPath() {
+            return localPath;
+        }
+
+        public long getCapturedAtMillis() {
+            return capturedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.eazeeditor.searchengineapi.screenshot;
+
+/**
+ * A single capture of a {@link ScreenshotService#captureAll(java.util.List)} batch.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class ScreenshotJob {
+
+    /**
+     * Which capture method the job runs.
+     */
+    public enum Mode {
+        /**
+         * The visible viewport, as {@link ScreenshotService#captureScreenshot(String, String, long)}.
+         */
+        STANDARD,
+        /**
+         * The full page, as {@link ScreenshotService#captureLongScreenshot(String, String, long)}.
+         */
+        LONG,
+        /**
+         * A percentage of the page height, as {@link ScreenshotService#capturePartialHeightScreenshot(String, String, int, long)}.
+         */
+        PARTIAL
+    }
+
+    private final String url;
+    private final String localPath;
+    private final Mode mode;
+    private int percentage = 100;
+    private long delayInMillis;
+    private long timeoutMillis;
+
+    /**
+     * @param url       the URL to capture.
+     * @param localPath the file path to save the screenshot.
+     * @param mode      the capture method, the initial delay defaults to the one of the matching single capture method.
+     */
+    public ScreenshotJob(String url, String localPath, Mode mode) {
+        if (url == null || url.isEmpty() || localPath == null || localPath.isEmpty() || mode == null) {
+            throw new IllegalArgumentException("url, localPath and mode are required");
+        }
+        this.url = url;
+        this.localPath = localPath;
+        this.mode = mode;
+        this.delayInMillis = mode == Mode.STANDARD ? 0 : 3000;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getPercentage() {
+        return percentage;
+    }
+
+    /**
+     * @param percentage the percentage of the page height to capture (1-100), only used by {@link Mode#PARTIAL}.
+     */
+    public void setPercentage(int percentage) {
+        if (percentage < 1 || percentage > 100) {
+            throw new IllegalArgumentException("Percentage must be between 1 and 100.");
+        }
+        this.percentage = percentage;
+    }
+
+    public long getDelayInMillis() {
+        return delayInMillis;
+    }
+
+    public void setDelayInMillis(long delayInMillis) {
+        this.delayInMillis = delayInMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @param timeoutMillis the time a single attempt of this job may take once it has a browser,
+     *                      0 to use {@link ScreenshotService#setDefaultJobTimeout(long)}.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+}
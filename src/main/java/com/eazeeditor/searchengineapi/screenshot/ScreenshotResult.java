@@ -0,0 +1,116 @@
+package com.eazeeditor.searchengineapi.screenshot;
+
+/**
+ * Outcome of a {@link ScreenshotJob}, one entry of the batch manifest written by
+ * {@link ScreenshotService#captureAll(java.util.List, String)}.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class ScreenshotResult {
+
+    public enum Status {
+        SUCCEEDED,
+        /**
+         * Captured, but not stored because it looks the same as the previous capture, see
+         * {@link ScreenshotService#setChangeDetection(String, int)}.
+         */
+        UNCHANGED,
+        FAILED,
+        TIMED_OUT,
+        /**
+         * Not attempted, because an earlier job failed under {@link ScreenshotService.FailurePolicy#FAIL_FAST}.
+         */
+        SKIPPED
+    }
+
+    private final String url;
+    private final String localPath;
+    private final ScreenshotJob.Mode mode;
+    private final Status status;
+    private final String error;
+    private final int attempts;
+    private final long startedAtMillis;
+    private final long durationMillis;
+    private final Double diffScore;
+
+    public ScreenshotResult(ScreenshotJob job, Status status, String error, int attempts, long startedAtMillis, long durationMillis) {
+        this(job, status, error, attempts, startedAtMillis, durationMillis, null);
+    }
+
+    public ScreenshotResult(ScreenshotJob job, Status status, String error, int attempts, long startedAtMillis, long durationMillis,
+                            Double diffScore) {
+        this(job, status, error, attempts, startedAtMillis, durationMillis, diffScore, job.getLocalPath());
+    }
+
+    /**
+     * @param localPath the file holding the capture, the file of the previous capture when it is {@link Status#UNCHANGED}.
+     */
+    public ScreenshotResult(ScreenshotJob job, Status status, String error, int attempts, long startedAtMillis, long durationMillis,
+                            Double diffScore, String localPath) {
+        this.url = job.getUrl();
+        this.localPath = localPath;
+        this.mode = job.getMode();
+        this.status = status;
+        this.error = error;
+        this.attempts = attempts;
+        this.startedAtMillis = startedAtMillis;
+        this.durationMillis = durationMillis;
+        this.diffScore = diffScore;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the file holding the capture, for an unchanged capture the file of the previous one, as nothing is written.
+     */
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    public ScreenshotJob.Mode getMode() {
+        return mode;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSuccessful() {
+        return status == Status.SUCCEEDED || status == Status.UNCHANGED;
+    }
+
+    /**
+     * @return the message of the last failure, or null if the job succeeded or was skipped.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return the epoch time at which a worker picked the job up.
+     */
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    /**
+     * @return the time spent on the job across all attempts, including waiting for a browser.
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return the perceptual difference to the previous capture of the URL, from 0 (identical) to 1, or null if change
+     * detection is off or the URL was never captured before.
+     */
+    public Double getDiffScore() {
+        return diffScore;
+    }
+}
@@ -1,84 +1,446 @@
 package com.eazeeditor.searchengineapi.screenshot;
 
+import com.eazeeditor.searchengineapi.browser.BlockProfile;
+import com.eazeeditor.searchengineapi.browser.BrowserManager;
+import com.eazeeditor.searchengineapi.browser.BrowserPool;
+import com.eazeeditor.searchengineapi.browser.BrowserProfile;
+import com.eazeeditor.searchengineapi.browser.RequestInterceptor;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import javadev.stringcollections.textreplacor.io.PathResolver;
+import org.openqa.selenium.Dimension;
 import org.openqa.selenium.JavascriptExecutor;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.devtools.Command;
 import org.openqa.selenium.devtools.DevTools;
 import org.openqa.selenium.devtools.v142.emulation.Emulation;
 import org.openqa.selenium.devtools.v142.page.Page;
+import org.openqa.selenium.devtools.v142.page.model.Viewport;
+import org.openqa.selenium.remote.RemoteWebDriver;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ScreenshotService implements AutoCloseable {
 
-public class ScreenshotService {
+    /**
+     * How {@link #captureAll(List)} reacts to a failed job.
+     */
+    public enum FailurePolicy {
+        /**
+         * Record the failure and carry on with the other jobs.
+         */
+        CONTINUE,
+        /**
+         * Retry a failed job once on a fresh tab before recording the failure.
+         */
+        RETRY_ONCE,
+        /**
+         * Stop at the first failure, the jobs that have not started yet are recorded as skipped.
+         */
+        FAIL_FAST
+    }
+
+    /**
+     * Image format of the captures.
+     */
+    public enum OutputFormat {
+        PNG(Page.CaptureScreenshotFormat.PNG),
+        JPEG(Page.CaptureScreenshotFormat.JPEG),
+        WEBP(Page.CaptureScreenshotFormat.WEBP);
+
+        private final Page.CaptureScreenshotFormat protocolFormat;
+
+        OutputFormat(Page.CaptureScreenshotFormat protocolFormat) {
+            this.protocolFormat = protocolFormat;
+        }
+    }
+
+    /**
+     * Default compression quality of JPEG and WebP captures.
+     */
+    public static final int DEFAULT_QUALITY = 80;
+
+    /**
+     * Default scroll step of the lazy-load scroll, as a fraction of the viewport height.
+     */
+    public static final double DEFAULT_SCROLL_STEP = 0.85;
+
+    /**
+     * Default time budget of the lazy-load scroll.
+     */
+    public static final long DEFAULT_SCROLL_MAX_DURATION_MILLIS = 30_000;
+
+    /**
+     * Quiet period after which the page is considered settled following a scroll step.
+     */
+    private static final long SCROLL_SETTLE_MILLIS = 150;
+
+    /**
+     * Arguments: step as a fraction of the viewport height, time budget, quiet period, and the async callback.
+     * Resolves with the full page size.
+     */
+    private static final String LAZY_LOAD_SCROLL_SCRIPT = """
+            var step = arguments[0], budget = arguments[1], settle = arguments[2];
+            var done = arguments[arguments.length - 1];
+            var deadline = Date.now() + budget;
+            var lastActivity = Date.now();
+            var touch = function () { lastActivity = Date.now(); };
+            var observers = [];
+            try {
+                var network = new PerformanceObserver(touch);
+                network.observe({type: 'resource'});
+                observers.push(network);
+            } catch (e) {}
+            var mutations = new MutationObserver(touch);
+            mutations.observe(document.documentElement, {childList: true, subtree: true,
+                attributes: true, attributeFilter: ['src', 'srcset', 'style', 'class']});
+            observers.push(mutations);
+            var lazy = new IntersectionObserver(function (entries) {
+                if (entries.some(function (e) { return e.isIntersecting; })) { touch(); }
+            });
+            document.querySelectorAll('img, iframe, video, [loading="lazy"]').forEach(function (el) { lazy.observe(el); });
+            observers.push(lazy);
+            var pageHeight = function () {
+                return Math.max(document.body.scrollHeight, document.body.offsetHeight,
+                    document.documentElement.clientHeight, document.documentElement.scrollHeight,
+                    document.documentElement.offsetHeight);
+            };
+            var pageWidth = function () {
+                return Math.max(document.body.scrollWidth, document.body.offsetWidth,
+                    document.documentElement.clientWidth, document.documentElement.scrollWidth,
+                    document.documentElement.offsetWidth);
+            };
+            var loadingImages = function () {
+                return Array.prototype.some.call(document.images, function (img) {
+                    return !img.complete && img.getBoundingClientRect().top < window.innerHeight;
+                });
+            };
+            var finish = function () {
+                observers.forEach(function (o) { o.disconnect(); });
+                done({width: pageWidth(), height: pageHeight()});
+            };
+            var stepPixels = function () { return Math.max(1, Math.floor(window.innerHeight * step)); };
+            var budgetShare = function (now) {
+                var steps = Math.max(1, Math.ceil((pageHeight() - y - window.innerHeight) / stepPixels()) + 1);
+                return (deadline - now) / steps;
+            };
+            var y = 0, atBottom = false, stepStart = Date.now();
+            var tick = function () {
+                var now = Date.now();
+                if (now >= deadline) { window.scrollTo(0, pageHeight()); return finish(); }
+                var waited = now - stepStart;
+                // A carousel or a polling widget never goes quiet, so activity holds a step for at most twice the
+                // settle time, only images loading in the viewport may hold it for its share of the remaining budget
+                if (loadingImages() && waited < budgetShare(now)) { return setTimeout(tick, 50); }
+                if (now - lastActivity < settle && waited < 2 * settle) { return setTimeout(tick, 50); }
+                if (atBottom && y + window.innerHeight >= pageHeight()) { return finish(); }
+                y = Math.min(y + stepPixels(), pageHeight());
+                atBottom = y + window.innerHeight >= pageHeight();
+                window.scrollTo(0, y);
+                touch();
+                stepStart = Date.now();
+                setTimeout(tick, 50);
+            };
+            tick();
+            """;
+
+    /**
+     * Default time a single attempt of a batch job may take once it has a browser.
+     */
+    public static final long DEFAULT_JOB_TIMEOUT_MILLIS = 120_000;
 
-    private final String chromeBinary;
+    /**
+     * Default height of the tiles of a tiled full-page capture, well below the texture limits of the compositor.
+     */
+    public static final int DEFAULT_TILE_HEIGHT = 4096;
+
+    /**
+     * Default number of differing hash bits up to which a capture counts as unchanged, 0 requires an identical hash.
+     */
+    public static final int DEFAULT_CHANGE_THRESHOLD = 0;
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * Writes a capture to the given file.
+     */
+    private interface CaptureAction {
+        void capture(String localPath) throws Exception;
+    }
+
+    /**
+     * Whether a capture was stored, where the latest capture is, and how much it differs from the previous one.
+     */
+    private static final class StoreOutcome {
+        private final boolean stored;
+        private final String localPath;
+        private final Double diffScore;
+
+        private StoreOutcome(boolean stored, String localPath, Double diffScore) {
+            this.stored = stored;
+            this.localPath = localPath;
+            this.diffScore = diffScore;
+        }
+    }
+
+    private final boolean ownsBrowserManager;
+    private final BrowserManager browserManager;
+    private volatile boolean pooled;
+    private volatile Semaphore captureSlots;
+    private volatile int maxConcurrentCaptures;
     private String userDataDir;
+    private FailurePolicy failurePolicy = FailurePolicy.CONTINUE;
+    private long defaultJobTimeoutMillis = DEFAULT_JOB_TIMEOUT_MILLIS;
+    private int tileHeight = DEFAULT_TILE_HEIGHT;
+    private OutputFormat outputFormat = OutputFormat.PNG;
+    private int quality = DEFAULT_QUALITY;
+    private double deviceScaleFactor = 1;
+    private int maxOutputWidth;
+    private int maxOutputHeight;
+    private double scrollStep = DEFAULT_SCROLL_STEP;
+    private long scrollMaxDurationMillis = DEFAULT_SCROLL_MAX_DURATION_MILLIS;
+    private BlockProfile blockProfile = BlockProfile.NONE;
+    private ScreenshotHashIndex hashIndex;
+    private int changeThreshold = DEFAULT_CHANGE_THRESHOLD;
 
     public ScreenshotService() throws IllegalStateException {
         String chromeBinaryPath = System.getenv("CHROME_BINARY_PATH");
         if (chromeBinaryPath == null || chromeBinaryPath.isEmpty()) {
             throw new IllegalStateException("CHROME_BINARY_PATH environment variable is not set.");
         }
-        this.chromeBinary = chromeBinaryPath;
+        this.browserManager = new BrowserManager(chromeBinaryPath);
+        this.ownsBrowserManager = true;
     }
 
     public ScreenshotService(String chromeBinaryPath) {
         if (chromeBinaryPath == null || chromeBinaryPath.isEmpty() || !PathResolver.isPathExists(chromeBinaryPath)) {
             throw new IllegalArgumentException("Invalid chromeBinaryPath");
         }
-        this.chromeBinary = chromeBinaryPath;
+        this.browserManager = new BrowserManager(chromeBinaryPath);
+        this.ownsBrowserManager = true;
+    }
+
+    /**
+     * Captures in warm browsers of a shared {@link BrowserManager}, whose lifecycle stays with the caller.
+     *
+     * @param browserManager The browser fleet, shared with other services.
+     */
+    public ScreenshotService(BrowserManager browserManager) {
+        if (browserManager == null) {
+            throw new IllegalArgumentException("browserManager cannot be null");
+        }
+        this.browserManager = browserManager;
+        this.ownsBrowserManager = false;
+        this.pooled = true;
     }
 
     public void setUserDataDir(String userDataDir) {
         this.userDataDir = userDataDir;
     }
 
-    public void captureScreenshot(String url, String localPath) {
-        captureScreenshot(url, localPath, 0);
+    public void setFailurePolicy(FailurePolicy failurePolicy) {
+        this.failurePolicy = failurePolicy;
     }
 
-    public void captureScreenshot(String url, String localPath, long delayInMillis) {
-        WebDriver driver = null;
-        try {
-            ChromeOptions options = new ChromeOptions();
-            options.setBinary(this.chromeBinary);
-            options.addArguments(
-                    "--headless=new",
-                    "--disable-gpu",
-                    "--window-size=1920,1080",
-                    "--no-sandbox",
-                    "--disable-dev-shm-usage"
-            );
-
-            if (this.userDataDir != null && !this.userDataDir.isEmpty()) {
-                options.addArguments("--user-data-dir=" + this.userDataDir);
-            }
+    /**
+     * @param defaultJobTimeoutMillis the time a single attempt of a batch job may take once it has a browser,
+     *                                used by jobs without their own timeout. 0 disables the timeout.
+     */
+    public void setDefaultJobTimeout(long defaultJobTimeoutMillis) {
+        this.defaultJobTimeoutMillis = defaultJobTimeoutMillis;
+    }
 
-            driver = new ChromeDriver(options);
-            driver.get(url);
+    /**
+     * Long and partial captures taller than the tile height are captured as fixed-height clips and stitched
+     * into the output PNG row by row, so memory stays bounded by the tile size however long the page is.
+     *
+     * @param tileHeight The tile height in CSS pixels, 0 captures the page in one piece.
+     */
+    public void setTileHeight(int tileHeight) {
+        if (tileHeight < 0) {
+            throw new IllegalArgumentException("tileHeight must not be negative");
+        }
+        this.tileHeight = tileHeight;
+    }
 
-            if (delayInMillis > 0) {
-                Thread.sleep(delayInMillis);
-            }
+    /**
+     * @param outputFormat The image format of the captures. WebP cannot be combined with change detection, as it
+     *                     cannot be decoded to compute the perceptual hash.
+     */
+    public void setOutputFormat(OutputFormat outputFormat) {
+        if (outputFormat == OutputFormat.WEBP && hashIndex != null) {
+            throw new IllegalStateException("Change detection does not support WebP captures.");
+        }
+        this.outputFormat = outputFormat;
+    }
 
-            File screenshotFile = ((org.openqa.selenium.TakesScreenshot)driver).getScreenshotAs(org.openqa.selenium.OutputType.FILE);
-            Files.copy(screenshotFile.toPath(), new File(localPath).toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * @param quality The compression quality (0-100) of JPEG and WebP captures, ignored for PNG.
+     */
+    public void setQuality(int quality) {
+        if (quality < 0 || quality > 100) {
+            throw new IllegalArgumentException("Quality must be between 0 and 100.");
+        }
+        this.quality = quality;
+    }
 
-            System.out.println("Screenshot captured for " + url + " at " + localPath);
+    /**
+     * @param deviceScaleFactor The emulated device pixel ratio, 2 renders a high-DPI capture of twice the size.
+     */
+    public void setDeviceScaleFactor(double deviceScaleFactor) {
+        if (deviceScaleFactor <= 0) {
+            throw new IllegalArgumentException("deviceScaleFactor must be positive");
+        }
+        this.deviceScaleFactor = deviceScaleFactor;
+    }
+
+    /**
+     * Bounds the size of the output image. Larger captures are downscaled by the browser while rasterizing,
+     * keeping the aspect ratio, so no image processing happens on the Java side.
+     *
+     * @param maxOutputWidth  The maximum width in pixels, 0 for no limit.
+     * @param maxOutputHeight The maximum height in pixels, 0 for no limit.
+     */
+    public void setMaxOutputSize(int maxOutputWidth, int maxOutputHeight) {
+        if (maxOutputWidth < 0 || maxOutputHeight < 0) {
+            throw new IllegalArgumentException("Maximum output size must not be negative");
+        }
+        this.maxOutputWidth = maxOutputWidth;
+        this.maxOutputHeight = maxOutputHeight;
+    }
+
+    /**
+     * @param scrollStep The lazy-load scroll step of long and partial captures, as a fraction of the viewport height.
+     */
+    public void setScrollStep(double scrollStep) {
+        if (scrollStep <= 0) {
+            throw new IllegalArgumentException("scrollStep must be positive");
+        }
+        this.scrollStep = scrollStep;
+    }
+
+    /**
+     * @param scrollMaxDurationMillis The time budget of the lazy-load scroll, the capture proceeds with whatever
+     *                                has loaded when it runs out.
+     */
+    public void setScrollMaxDuration(long scrollMaxDurationMillis) {
+        if (scrollMaxDurationMillis <= 0) {
+            throw new IllegalArgumentException("scrollMaxDurationMillis must be positive");
+        }
+        this.scrollMaxDurationMillis = scrollMaxDurationMillis;
+    }
+
+    /**
+     * @param blockProfile The requests to block while loading pages, for example {@link BlockProfile#SCREENSHOT}.
+     *                     The page load statistics of every capture are printed when something is blocked.
+     */
+    public void setBlockProfile(BlockProfile blockProfile) {
+        this.blockProfile = blockProfile != null ? blockProfile : BlockProfile.NONE;
+    }
+
+    public void setChangeDetection(String indexPath) throws IOException {
+        setChangeDetection(indexPath, DEFAULT_CHANGE_THRESHOLD);
+    }
+
+    /**
+     * Computes a perceptual hash (dHash) of every capture and compares it with the previous capture of the same URL
+     * and mode. A capture whose hash differs by at most the threshold is not written, the previous file stays the
+     * latest one. The difference is reported as a diff score in the batch results. Works with PNG and JPEG output, WebP
+     * captures cannot be decoded and are rejected.
+     *
+     * @param indexPath       The JSON file keeping the hash of the last stored capture of every URL, or null to
+     *                        turn change detection off.
+     * @param changeThreshold The number of differing hash bits (0-64) up to which a capture counts as unchanged.
+     * @throws IOException If an existing index cannot be read.
+     */
+    public void setChangeDetection(String indexPath, int changeThreshold) throws IOException {
+        if (changeThreshold < 0 || changeThreshold > 64) {
+            throw new IllegalArgumentException("changeThreshold must be between 0 and 64");
+        }
+        if (indexPath != null && outputFormat == OutputFormat.WEBP) {
+            throw new IllegalStateException("Change detection does not support WebP captures.");
+        }
+        this.hashIndex = indexPath != null ? ScreenshotHashIndex.load(Paths.get(indexPath)) : null;
+        this.changeThreshold = changeThreshold;
+    }
+
+    public void enableBrowserPool(int poolSize) {
+        enableBrowserPool(poolSize, BrowserPool.DEFAULT_MAX_USES_PER_BROWSER);
+    }
+
+    /**
+     * Makes every capture method draw a warm browser from the pools of the {@link BrowserManager} and capture in a
+     * fresh tab, instead of launching and quitting a browser per capture. Call {@link #close()} to quit the pooled browsers.
+     * Chrome locks its user data directory, so a user data directory can only be combined with a pool of one browser.
+     * The pool size is the capacity of the browser manager owned by this service. The capacity of a shared manager
+     * belongs to its owner and is left untouched: the pool size only bounds the concurrent captures of this service,
+     * and browsers are recycled according to the settings of the manager.
+     *
+     * @param poolSize              The maximum number of browsers, which is also the number of concurrent captures.
+     * @param maxCapturesPerBrowser The number of captures after which a browser is quit and replaced, ignored for a
+     *                              shared browser manager.
+     */
+    public synchronized void enableBrowserPool(int poolSize, int maxCapturesPerBrowser) {
+        if (this.userDataDir != null && !this.userDataDir.isEmpty() && poolSize > 1) {
+            throw new IllegalStateException("A user data directory cannot be shared by " + poolSize + " pooled browsers.");
+        }
+        if (ownsBrowserManager) {
+            browserManager.setMaxBrowsers(poolSize);
+            browserManager.setMaxUsesPerBrowser(maxCapturesPerBrowser);
+        } else {
+            // Resizing a shared manager would close the pools of the other services
+            this.captureSlots = new Semaphore(poolSize, true);
+            this.maxConcurrentCaptures = poolSize;
+        }
+        this.pooled = true;
+    }
+
+    /**
+     * Quits the idle pooled browsers of a browser manager owned by this service. A shared manager is left to its owner.
+     */
+    @Override
+    public void close() {
+        if (ownsBrowserManager) {
+            browserManager.close();
+        }
+    }
+
+    public void captureScreenshot(String url, String localPath) {
+        captureScreenshot(url, localPath, 0);
+    }
+
+    public void captureScreenshot(String url, String localPath, long delayInMillis) {
+        try (BrowserPool.Lease browser = openBrowser(BrowserProfile.SCREENSHOT)) {
+            StoreOutcome outcome = store(ScreenshotJob.Mode.STANDARD, url, localPath,
+                    path -> captureViewport(browser, url, path, delayInMillis));
+
+            printOutcome("Screenshot", url, localPath, outcome);
         } catch (Exception e) {
             throw new RuntimeException("Failed to capture standard screenshot for " + url, e);
-        } finally {
-            if (driver != null) {
-                driver.quit();
-            }
         }
     }
 
@@ -87,83 +449,13 @@ public class ScreenshotService {
     }
 
     public void captureLongScreenshot(String url, String localPath, long delayInMillis) {
-        ChromeDriver driver = null;
-        try {
-            ChromeOptions options = new ChromeOptions();
-            options.setBinary(this.chromeBinary);
-            options.addArguments(
-                    "--headless=new",
-                    "--disable-gpu",
-                    "--window-size=1920,1080",
-                    "--no-sandbox",
-                    "--disable-dev-shm-usage",
-                    "--disable-web-security",
-                    "--disable-features=VizDisplayCompositor",
-                    "--disable-background-timer-throttling",
-                    "--disable-renderer-backgrounding",
-                    "--disable-backgrounding-occluded-windows"
-            );
-
-            if (this.userDataDir != null && !this.userDataDir.isEmpty()) {
-                options.addArguments("--user-data-dir=" + this.userDataDir);
-            }
-
-            driver = new ChromeDriver(options);
-            DevTools devTools = driver.getDevTools();
-            devTools.createSession();
-
-            driver.get(url);
-
-            robustScrollToBottom(driver, delayInMillis);
-
-            // Get actual page dimensions
-            JavascriptExecutor js = (JavascriptExecutor) driver;
-            Long finalHeight = (Long) js.executeScript(
-                    "return Math.max(" +
-                            "document.body.scrollHeight, document.body.offsetHeight, " +
-                            "document.documentElement.clientHeight, document.documentElement.scrollHeight, " +
-                            "document.documentElement.offsetHeight);"
-            );
-            Long finalWidth = (Long) js.executeScript(
-                    "return Math.max(" +
-                            "document.body.scrollWidth, document.body.offsetWidth, " +
-                            "document.documentElement.clientWidth, document.documentElement.scrollWidth, " +
-                            "document.documentElement.offsetWidth);"
-            );
-
-            // Set device metrics for full page capture
-            // This is the "zoom out viewport until whole content fit" part.
-            // It emulates a viewport as tall and wide as the entire page.
-            devTools.send(Emulation.setDeviceMetricsOverride(
-                    finalWidth.intValue(), finalHeight.intValue(), 1, false,
-                    Optional.empty(), Optional.empty(), Optional.empty(),
-                    Optional.empty(), Optional.empty(), Optional.empty(),
-                    Optional.empty(), Optional.empty(), Optional.empty(),
-                    Optional.empty()
-            ));
-
-            // Capture screenshot
-            String data = devTools.send(Page.captureScreenshot(
-                    Optional.of(Page.CaptureScreenshotFormat.PNG),
-                    Optional.empty(),
-                    Optional.empty(),
-                    Optional.of(true), // captureBeyondViewport
-                    Optional.empty(),
-                    Optional.empty()
-            ));
-
-            byte[] imageBytes = Base64.getDecoder().decode(data);
-            try (FileOutputStream fos = new FileOutputStream(localPath)) {
-                fos.write(imageBytes);
-            }
+        try (BrowserPool.Lease browser = openBrowser(BrowserProfile.SCREENSHOT_EXTENDED)) {
+            StoreOutcome outcome = store(ScreenshotJob.Mode.LONG, url, localPath,
+                    path -> captureToHeight(browser, url, path, 100, delayInMillis));
 
-            System.out.println("Long screenshot captured for " + url + " at " + localPath);
+            printOutcome("Long screenshot", url, localPath, outcome);
         } catch (Exception e) {
             throw new RuntimeException("Failed to capture long screenshot for " + url, e);
-        } finally {
-            if (driver != null) {
-                driver.quit();
-            }
         }
     }
 
@@ -186,150 +478,377 @@ public class ScreenshotService {
             throw new IllegalArgumentException("Percentage must be between 1 and 100.");
         }
 
-        ChromeDriver driver = null;
+        try (BrowserPool.Lease browser = openBrowser(BrowserProfile.SCREENSHOT_EXTENDED)) {
+            StoreOutcome outcome = store(ScreenshotJob.Mode.PARTIAL, url, localPath,
+                    path -> captureToHeight(browser, url, path, percentage, delayInMillis));
+
+            printOutcome("Partial screenshot (" + percentage + "%)", url, localPath, outcome);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to capture partial screenshot for " + url, e);
+        }
+    }
+
+    /**
+     * Captures a batch of jobs in parallel, one job per pooled browser at a time, so the parallelism is the capacity of
+     * the browser manager (see {@link #enableBrowserPool(int, int)}). Without pooling the jobs run one after the other
+     * in dedicated browsers.
+     * A job exceeding its timeout has its browser quit, which aborts the capture and replaces the browser in the pool.
+     * Failures never propagate, they are recorded in the results according to the {@link FailurePolicy}.
+     *
+     * @param jobs The jobs to capture.
+     * @return One result per job, in the order of the jobs.
+     * @throws InterruptedException If the thread is interrupted while waiting for the batch.
+     */
+    public List<ScreenshotResult> captureAll(List<ScreenshotJob> jobs) throws InterruptedException {
+        int parallelism = !pooled ? 1 : captureSlots != null
+                ? Math.min(maxConcurrentCaptures, browserManager.getMaxBrowsers()) : browserManager.getMaxBrowsers();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(jobs.size(), 1)));
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        AtomicBoolean batchFailed = new AtomicBoolean();
         try {
-            ChromeOptions options = new ChromeOptions();
-            options.setBinary(this.chromeBinary);
-            options.addArguments(
-                    "--headless=new",
-                    "--disable-gpu",
-                    "--window-size=1920,1080",
-                    "--no-sandbox",
-                    "--disable-dev-shm-usage",
-                    "--disable-web-security",
-                    "--disable-features=VizDisplayCompositor",
-                    "--disable-background-timer-throttling",
-                    "--disable-renderer-backgrounding",
-                    "--disable-backgrounding-occluded-windows"
-            );
-
-            if (this.userDataDir != null && !this.userDataDir.isEmpty()) {
-                options.addArguments("--user-data-dir=" + this.userDataDir);
+            List<Future<ScreenshotResult>> futures = new ArrayList<>(jobs.size());
+            for (ScreenshotJob job : jobs) {
+                futures.add(workers.submit(() -> runJob(job, watchdog, batchFailed)));
             }
+            List<ScreenshotResult> results = new ArrayList<>(jobs.size());
+            for (Future<ScreenshotResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // runJob records every failure, anything reaching here is a bug
+                    throw new IllegalStateException("Screenshot job crashed", e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            workers.shutdownNow();
+            watchdog.shutdownNow();
+        }
+    }
 
-            driver = new ChromeDriver(options);
-            DevTools devTools = driver.getDevTools();
-            devTools.createSession();
+    /**
+     * Captures a batch of jobs and writes the results as a JSON manifest, with the status and timing of every URL.
+     *
+     * @param jobs         The jobs to capture.
+     * @param manifestPath The file path to save the manifest.
+     * @return One result per job, in the order of the jobs.
+     * @throws InterruptedException If the thread is interrupted while waiting for the batch.
+     * @throws IOException          If the manifest cannot be written.
+     */
+    public List<ScreenshotResult> captureAll(List<ScreenshotJob> jobs, String manifestPath) throws InterruptedException, IOException {
+        List<ScreenshotResult> results = captureAll(jobs);
+        try (Writer writer = Files.newBufferedWriter(Paths.get(manifestPath), StandardCharsets.UTF_8)) {
+            GSON.toJson(results, writer);
+        }
+        long succeeded = results.stream().filter(ScreenshotResult::isSuccessful).count();
+        System.out.println("Captured " + succeeded + " of " + results.size() + " screenshots, manifest saved at " + manifestPath);
+        return results;
+    }
 
-            driver.get(url);
+    private ScreenshotResult runJob(ScreenshotJob job, ScheduledExecutorService watchdog, AtomicBoolean batchFailed) {
+        long startedAt = System.currentTimeMillis();
+        if (failurePolicy == FailurePolicy.FAIL_FAST && batchFailed.get()) {
+            return new ScreenshotResult(job, ScreenshotResult.Status.SKIPPED, null, 0, startedAt, 0);
+        }
+        int maxAttempts = failurePolicy == FailurePolicy.RETRY_ONCE ? 2 : 1;
+        long timeoutMillis = job.getTimeoutMillis() > 0 ? job.getTimeoutMillis() : defaultJobTimeoutMillis;
+
+        ScreenshotResult.Status status = ScreenshotResult.Status.FAILED;
+        String error = null;
+        Double diffScore = null;
+        String storedPath = job.getLocalPath();
+        int attempts = 0;
+        while (attempts < maxAttempts && !Thread.currentThread().isInterrupted()) {
+            attempts++;
+            AtomicBoolean timedOut = new AtomicBoolean();
+            try (BrowserPool.Lease browser = openBrowser(job.getMode() == ScreenshotJob.Mode.STANDARD ? BrowserProfile.SCREENSHOT : BrowserProfile.SCREENSHOT_EXTENDED)) {
+                ScheduledFuture<?> timer = timeoutMillis > 0
+                        ? watchdog.schedule(() -> {
+                            timedOut.set(true);
+                            browser.abort();
+                        }, timeoutMillis, TimeUnit.MILLISECONDS)
+                        : null;
+                StoreOutcome outcome;
+                try {
+                    outcome = store(job.getMode(), job.getUrl(), job.getLocalPath(), path -> {
+                        if (job.getMode() == ScreenshotJob.Mode.STANDARD) {
+                            captureViewport(browser, job.getUrl(), path, job.getDelayInMillis());
+                        } else {
+                            int percentage = job.getMode() == ScreenshotJob.Mode.LONG ? 100 : job.getPercentage();
+                            captureToHeight(browser, job.getUrl(), path, percentage, job.getDelayInMillis());
+                        }
+                    });
+                } finally {
+                    if (timer != null) {
+                        timer.cancel(false);
+                    }
+                }
+                status = outcome.stored ? ScreenshotResult.Status.SUCCEEDED : ScreenshotResult.Status.UNCHANGED;
+                diffScore = outcome.diffScore;
+                storedPath = outcome.localPath;
+                error = null;
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = "Interrupted";
+            } catch (Exception e) {
+                status = timedOut.get() ? ScreenshotResult.Status.TIMED_OUT : ScreenshotResult.Status.FAILED;
+                error = timedOut.get() ? "Timed out after " + timeoutMillis + " ms" : e.toString();
+            }
+        }
 
-            // Scroll to bottom to load all content, which ensures we get the *true* full height
-            robustScrollToBottom(driver, delayInMillis);
+        if (status != ScreenshotResult.Status.SUCCEEDED && status != ScreenshotResult.Status.UNCHANGED) {
+            batchFailed.set(true);
+            System.err.println("Failed to capture " + job.getUrl() + " - " + error);
+        }
+        return new ScreenshotResult(job, status, error, attempts, startedAt, System.currentTimeMillis() - startedAt, diffScore,
+                storedPath);
+    }
 
-            // Get actual page dimensions
-            JavascriptExecutor js = (JavascriptExecutor) driver;
-            Long fullHeight = (Long) js.executeScript(
-                    "return Math.max(" +
-                            "document.body.scrollHeight, document.body.offsetHeight, " +
-                            "document.documentElement.clientHeight, document.documentElement.scrollHeight, " +
-                            "document.documentElement.offsetHeight);"
-            );
-            Long fullWidth = (Long) js.executeScript(
-                    "return Math.max(" +
-                            "document.body.scrollWidth, document.body.offsetWidth, " +
-                            "document.documentElement.clientWidth, document.documentElement.scrollWidth, " +
-                            "document.documentElement.offsetWidth);"
-            );
-
-            // NEW: Calculate the target height based on the percentage
-            int targetHeight = (int) (fullHeight * (percentage / 100.0));
-            // Ensure height is at least 1px
-            targetHeight = Math.max(targetHeight, 1);
-
-            // Set device metrics for the *partial* page capture
-            devTools.send(Emulation.setDeviceMetricsOverride(
-                    fullWidth.intValue(), targetHeight, 1, false,
-                    Optional.empty(), Optional.empty(), Optional.empty(),
-                    Optional.empty(), Optional.empty(), Optional.empty(),
-                    Optional.empty(), Optional.empty(), Optional.empty(),
-                    Optional.empty()
-            ));
-
-            // Capture screenshot
-            String data = devTools.send(Page.captureScreenshot(
-                    Optional.of(Page.CaptureScreenshotFormat.PNG),
-                    Optional.empty(),
-                    Optional.empty(),
-                    Optional.of(true), // captureBeyondViewport
-                    Optional.empty(),
-                    Optional.empty()
-            ));
-
-            byte[] imageBytes = Base64.getDecoder().decode(data);
-            try (FileOutputStream fos = new FileOutputStream(localPath)) {
-                fos.write(imageBytes);
-            }
+    /**
+     * Runs a capture into the target file. With change detection, the capture goes to a temporary file first and only
+     * replaces the target when its perceptual hash differs from the previous capture by more than the threshold.
+     */
+    private StoreOutcome store(ScreenshotJob.Mode mode, String url, String localPath, CaptureAction action) throws Exception {
+        ScreenshotHashIndex index = this.hashIndex;
+        if (index == null) {
+            action.capture(localPath);
+            return new StoreOutcome(true, localPath, null);
+        }
 
-            System.out.println("Partial screenshot (" + percentage + "%) captured for " + url + " at " + localPath);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to capture partial screenshot for " + url, e);
-        } finally {
-            if (driver != null) {
-                driver.quit();
+        Path target = Paths.get(localPath);
+        Path temp = target.resolveSibling(target.getFileName() + ".part");
+        try {
+            action.capture(temp.toString());
+            long hash = PerceptualHash.dHash(temp);
+            String key = ScreenshotHashIndex.key(mode, url);
+            ScreenshotHashIndex.Entry previous = index.get(key);
+            Double diffScore = previous != null ? PerceptualHash.diffScore(hash, previous.getHash()) : null;
+            if (previous != null && PerceptualHash.distance(hash, previous.getHash()) <= changeThreshold) {
+                // Nothing is written, the previous capture stays the latest one
+                return new StoreOutcome(false, previous.getLocalPath(), diffScore);
             }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            index.put(key, new ScreenshotHashIndex.Entry(hash, localPath, System.currentTimeMillis()));
+            index.save();
+            return new StoreOutcome(true, localPath, diffScore);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void printOutcome(String kind, String url, String localPath, StoreOutcome outcome) {
+        String diff = outcome.diffScore != null ? String.format(" (diff score %.3f)", outcome.diffScore) : "";
+        if (outcome.stored) {
+            System.out.println(kind + " captured for " + url + " at " + localPath + diff);
+        } else {
+            System.out.println(kind + " of " + url + " unchanged since the previous capture at " + outcome.localPath + diff);
         }
     }
 
+    private void captureViewport(BrowserPool.Lease browser, String url, String localPath, long delayInMillis) throws Exception {
+        RemoteWebDriver driver = browser.getDriver();
+        RequestInterceptor interceptor = interceptRequests(browser);
+        driver.get(url);
+
+        if (delayInMillis > 0) {
+            Thread.sleep(delayInMillis);
+        }
+        reportPageLoad(interceptor, driver, url);
+
+        String data;
+        if (outputFormat == OutputFormat.PNG && deviceScaleFactor == 1 && maxOutputWidth == 0 && maxOutputHeight == 0) {
+            data = ((org.openqa.selenium.TakesScreenshot)driver).getScreenshotAs(org.openqa.selenium.OutputType.BASE64);
+        } else {
+            JavascriptExecutor js = (JavascriptExecutor) driver;
+            int width = ((Long) js.executeScript("return window.innerWidth")).intValue();
+            int height = ((Long) js.executeScript("return window.innerHeight")).intValue();
+            DevTools devTools = browser.getDevTools();
+            overrideDeviceMetrics(devTools, width, height);
+            data = devTools.send(captureCommand(new Viewport(0, 0, width, height, outputScale(width, height)), false));
+        }
+
+        // Decode the Base64 payload straight into the target, instead of through a temporary file
+        Base64Streams.write(data, Paths.get(localPath));
+    }
 
     /**
-     * Replaces both waitForAnimations and scrollToBottomWithAnimationSupport.
-     * This method scrolls down the page iteratively until the page height stabilizes,
-     * ensuring all lazy-loaded content is triggered and loaded.
+     * Captures the page from the top down to a percentage of its full height, 100 being the whole page.
      */
-    private void robustScrollToBottom(ChromeDriver driver, long initialDelayInMillis) throws InterruptedException {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(10));
-
-        // 1. Initial wait for the page to settle (using the provided delay)
-        if (initialDelayInMillis > 0) {
-            Thread.sleep(initialDelayInMillis);
+    private void captureToHeight(BrowserPool.Lease browser, String url, String localPath, int percentage, long delayInMillis) throws Exception {
+        RemoteWebDriver driver = browser.getDriver();
+        DevTools devTools = browser.getDevTools();
+        RequestInterceptor interceptor = interceptRequests(browser);
+
+        driver.get(url);
+
+        // Scroll to bottom to load all content, which ensures we get the *true* full height
+        Dimension pageSize = scrollToLoadLazyContent(driver, delayInMillis);
+        reportPageLoad(interceptor, driver, url);
+        int fullHeight = pageSize.getHeight();
+        int fullWidth = pageSize.getWidth();
+
+        // Calculate the target height based on the percentage, at least 1px
+        int targetHeight = (int) (fullHeight * (percentage / 100.0));
+        targetHeight = Math.max(targetHeight, 1);
+
+        // Stitching writes PNG only, other formats are meant for previews and captured in one piece
+        if (outputFormat == OutputFormat.PNG && tileHeight > 0 && targetHeight > tileHeight) {
+            captureTiles(devTools, fullWidth, targetHeight, localPath);
+            return;
         }
-        wait.until(d -> driver.executeScript("return document.readyState").equals("complete"));
 
-        long lastHeight = (Long) driver.executeScript("return document.body.scrollHeight");
-        long currentScroll = 0;
-        long viewportHeight = (Long) driver.executeScript("return window.innerHeight");
-        long scrollStep = (long) (viewportHeight * 0.85); // Scroll in 85% viewport steps
+        // Set device metrics for the capture
+        // This is the "zoom out viewport until whole content fit" part.
+        // It emulates a viewport as wide as the page and as tall as the captured part.
+        overrideDeviceMetrics(devTools, fullWidth, targetHeight);
 
-        while (true) {
-            // 2. Scroll down by one step
-            currentScroll += scrollStep;
-            driver.executeScript("window.scrollTo(0, " + currentScroll + ");");
+        // Capture screenshot, clipped only when it has to be downscaled
+        double scale = outputScale(fullWidth, targetHeight);
+        String data = devTools.send(captureCommand(
+                scale < 1 ? new Viewport(0, 0, fullWidth, targetHeight, scale) : null, false));
 
-            // 3. Give a brief, pragmatic pause to trigger JS-based lazy-loading
-            Thread.sleep(400);
+        Base64Streams.write(data, Paths.get(localPath));
+    }
 
-            // 4. Wait for JS/jQuery to be idle
-            try {
-                wait.until(d -> (Boolean) ((JavascriptExecutor) driver).executeScript(
-                        "return (typeof jQuery === 'undefined' || jQuery.active === 0)"
-                ));
-            } catch (Exception e) {
-                // Ignore if jQuery check fails (e.g., jQuery not present or timeout)
+    /**
+     * Captures the page in clips of {@link #tileHeight} and streams them into a single PNG.
+     * Only one decoded tile is held in memory at a time.
+     */
+    private void captureTiles(DevTools devTools, int width, int height, String localPath) throws IOException {
+        // Emulate a viewport as wide as the page and one tile tall, the clips reach beyond it
+        overrideDeviceMetrics(devTools, width, tileHeight);
+
+        double scale = outputScale(width, height);
+        double pixelRatio = scale * deviceScaleFactor;
+        int outputWidth = Math.max(1, (int) Math.round(width * pixelRatio));
+        int outputHeight = Math.max(1, (int) Math.round(height * pixelRatio));
+
+        Path target = Paths.get(localPath);
+        try (StreamingPngWriter png = new StreamingPngWriter(target, outputWidth, outputHeight)) {
+            int[] row = new int[outputWidth];
+            for (int top = 0; top < height; top += tileHeight) {
+                int clipHeight = Math.min(tileHeight, height - top);
+                String data = devTools.send(captureCommand(new Viewport(0, top, width, clipHeight, scale), true));
+                BufferedImage tile = ImageIO.read(Base64Streams.open(data));
+                if (tile == null) {
+                    throw new IOException("Unreadable screenshot tile at offset " + top);
+                }
+                // Rows are derived from the CSS offsets, so rounding never accumulates across tiles
+                int rows = (int) Math.round((top + clipHeight) * pixelRatio) - (int) Math.round(top * pixelRatio);
+                int tileWidth = Math.min(outputWidth, tile.getWidth());
+                for (int y = 0; y < rows; y++) {
+                    // Pad with white if Chrome returned a smaller tile than requested
+                    Arrays.fill(row, 0xFFFFFFFF);
+                    if (y < tile.getHeight()) {
+                        tile.getRGB(0, y, tileWidth, 1, row, 0, outputWidth);
+                    }
+                    png.writeRow(row, 0);
+                }
             }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
 
-            // 5. Check the new page height after loading
-            long newHeight = (Long) driver.executeScript("return document.body.scrollHeight");
+    /**
+     * Starts blocking the requests of the block profile in the tab, unless the profile blocks nothing.
+     */
+    private RequestInterceptor interceptRequests(BrowserPool.Lease browser) {
+        BlockProfile profile = this.blockProfile;
+        return profile.isEmpty() ? null : RequestInterceptor.attach(browser.getDevTools(), profile);
+    }
 
-            // 6. Check if we're done:
-            // If the height hasn't changed AND we've scrolled past the bottom, we're done.
-            if (newHeight == lastHeight && currentScroll >= newHeight) {
-                break;
-            }
+    private void reportPageLoad(RequestInterceptor interceptor, RemoteWebDriver driver, String url) {
+        if (interceptor != null) {
+            System.out.println(interceptor.collectStats(driver, url));
+        }
+    }
 
-            // If height has changed, update it and continue the loop
-            lastHeight = newHeight;
+    private void overrideDeviceMetrics(DevTools devTools, int width, int height) {
+        devTools.send(Emulation.setDeviceMetricsOverride(
+                width, height, deviceScaleFactor, false,
+                Optional.empty(), Optional.empty(), Optional.empty(),
+                Optional.empty(), Optional.empty(), Optional.empty(),
+                Optional.empty(), Optional.empty(), Optional.empty(),
+                Optional.empty()
+        ));
+    }
 
-            // Don't scroll unnecessarily past the new bottom
-            if (currentScroll > newHeight) {
-                currentScroll = newHeight;
-            }
+    /**
+     * @return the clip scale that fits a capture of the given CSS size into the maximum output size, at most 1.
+     */
+    private double outputScale(int width, int height) {
+        double scale = 1;
+        if (maxOutputWidth > 0) {
+            scale = Math.min(scale, maxOutputWidth / (width * deviceScaleFactor));
+        }
+        if (maxOutputHeight > 0) {
+            scale = Math.min(scale, maxOutputHeight / (height * deviceScaleFactor));
+        }
+        return scale;
+    }
+
+    /**
+     * @param clip                  the region to capture, or null for the whole emulated viewport.
+     * @param captureBeyondViewport whether the clip may reach beyond the emulated viewport.
+     */
+    private Command<String> captureCommand(Viewport clip, boolean captureBeyondViewport) {
+        return Page.captureScreenshot(
+                Optional.of(outputFormat.protocolFormat),
+                outputFormat == OutputFormat.PNG ? Optional.empty() : Optional.of(quality),
+                Optional.ofNullable(clip),
+                Optional.of(true), // fromSurface
+                captureBeyondViewport ? Optional.of(true) : Optional.empty(),
+                Optional.empty()
+        );
+    }
+
+    /**
+     * Borrows a tab of a pooled browser, or launches a dedicated browser when pooling is not enabled.
+     */
+    private BrowserPool.Lease openBrowser(BrowserProfile profile) throws InterruptedException {
+        BrowserProfile effective = profile.withUserDataDir(this.userDataDir);
+        if (!pooled) {
+            return browserManager.launch(effective);
         }
+        Semaphore slots = captureSlots;
+        if (slots == null) {
+            return browserManager.acquire(effective);
+        }
+        slots.acquire();
+        try {
+            return browserManager.acquire(effective).onClose(slots::release);
+        } catch (InterruptedException | RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Scrolls through the page to trigger lazy-loaded content, and returns the full page size once it stops growing.
+     * The whole scroll runs inside the page as a single async script: after every step it waits until the network,
+     * the DOM and the lazy elements entering the viewport have been quiet for {@link #SCROLL_SETTLE_MILLIS},
+     * instead of sleeping a fixed time and polling from Java. Activity holds a step for at most twice the settle time, and
+     * images still loading for at most the share of the step in the remaining budget, so a page that never goes quiet,
+     * such as one with a carousel, is still scrolled to the end well within the budget.
+     */
+    private Dimension scrollToLoadLazyContent(RemoteWebDriver driver, long initialDelayInMillis) throws InterruptedException {
+        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(10));
 
-        // 7. One final scroll to the absolute bottom
-        driver.executeScript("window.scrollTo(0, document.body.scrollHeight);");
+        // Initial wait for the page to settle (using the provided delay)
+        if (initialDelayInMillis > 0) {
+            Thread.sleep(initialDelayInMillis);
+        }
+        wait.until(d -> driver.executeScript("return document.readyState").equals("complete"));
 
-        // 8. A final pragmatic wait for any footer animations/content
-        Thread.sleep(2000);
+        // The script ends itself at its budget, the driver timeout only guards against a hung renderer
+        driver.manage().timeouts().scriptTimeout(Duration.ofMillis(scrollMaxDurationMillis + 10_000));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> size = (Map<String, Object>) driver.executeAsyncScript(
+                LAZY_LOAD_SCROLL_SCRIPT, scrollStep, scrollMaxDurationMillis, SCROLL_SETTLE_MILLIS);
+        return new Dimension(((Number) size.get("width")).intValue(), ((Number) size.get("height")).intValue());
     }
 
 
@@ -0,0 +1,240 @@
+package com.eazeeditor.searchengineapi.screenshot;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an 8-bit RGB PNG one row at a time, so an image of any height is encoded with memory bounded by its width.
+ * Rows are filtered with the per-row heuristic recommended by the PNG specification (the filter with the smallest
+ * sum of absolute differences), deflated, and flushed as IDAT chunks of at most {@link #CHUNK_SIZE} bytes.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class StreamingPngWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int BYTES_PER_PIXEL = 3;
+
+    private final DataOutputStream out;
+    private final IdatOutputStream chunks;
+    private final DeflaterOutputStream idat;
+    private final Deflater deflater;
+    private final int width;
+    private final int height;
+    private final byte[][] filtered = new byte[5][];
+    private byte[] previous;
+    private byte[] current;
+    private int rowsWritten;
+    private boolean closed;
+
+    /**
+     * @param file   the PNG file to create, replaced if it exists.
+     * @param width  the image width in pixels.
+     * @param height the image height in pixels.
+     * @throws IOException if the file cannot be created.
+     */
+    public StreamingPngWriter(Path file, int width, int height) throws IOException {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid PNG dimensions " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), CHUNK_SIZE));
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.chunks = new IdatOutputStream();
+        this.idat = new DeflaterOutputStream(chunks, deflater, CHUNK_SIZE);
+
+        int stride = width * BYTES_PER_PIXEL;
+        this.previous = new byte[stride];
+        this.current = new byte[stride];
+        for (int i = 0; i < filtered.length; i++) {
+            filtered[i] = new byte[stride + 1];
+            filtered[i][0] = (byte) i;
+        }
+
+        out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = 8;  // bit depth
+        header[9] = 2;  // color type: truecolor
+        header[10] = 0; // compression: deflate
+        header[11] = 0; // filter method: adaptive
+        header[12] = 0; // interlace: none
+        writeChunk("IHDR", header, header.length);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Writes the next row.
+     * @param argb   packed ARGB pixels, as returned by {@link java.awt.image.BufferedImage#getRGB}, alpha is ignored.
+     * @param offset the index of the first pixel of the row in the array.
+     * @throws IOException if the row cannot be written.
+     */
+    public void writeRow(int[] argb, int offset) throws IOException {
+        if (rowsWritten >= height) {
+            throw new IllegalStateException("All " + height + " rows were already written");
+        }
+        for (int x = 0, i = 0; x < width; x++) {
+            int pixel = argb[offset + x];
+            current[i++] = (byte) (pixel >> 16);
+            current[i++] = (byte) (pixel >> 8);
+            current[i++] = (byte) pixel;
+        }
+        idat.write(filterRow());
+        byte[] swap = previous;
+        previous = current;
+        current = swap;
+        rowsWritten++;
+    }
+
+    /**
+     * Finishes the image data and writes the end chunk.
+     * @throws IOException if fewer rows than the image height were written, or the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            idat.finish();
+            chunks.flushChunk();
+            writeChunk("IEND", new byte[0], 0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+        if (rowsWritten != height) {
+            throw new IOException("Incomplete PNG, " + rowsWritten + " of " + height + " rows were written");
+        }
+    }
+
+    /**
+     * Applies the five PNG filters to the current row and returns the one with the smallest sum of absolute values.
+     */
+    private byte[] filterRow() {
+        int stride = current.length;
+        long best = Long.MAX_VALUE;
+        int bestType = 0;
+        for (int type = 0; type < filtered.length; type++) {
+            byte[] row = filtered[type];
+            long sum = 0;
+            for (int i = 0; i < stride; i++) {
+                int raw = current[i] & 0xFF;
+                int left = i >= BYTES_PER_PIXEL ? current[i - BYTES_PER_PIXEL] & 0xFF : 0;
+                int up = previous[i] & 0xFF;
+                int upLeft = i >= BYTES_PER_PIXEL ? previous[i - BYTES_PER_PIXEL] & 0xFF : 0;
+                int predictor;
+                switch (type) {
+                    case 1:
+                        predictor = left;
+                        break;
+                    case 2:
+                        predictor = up;
+                        break;
+                    case 3:
+                        predictor = (left + up) >>> 1;
+                        break;
+                    case 4:
+                        predictor = paeth(left, up, upLeft);
+                        break;
+                    default:
+                        predictor = 0;
+                }
+                byte value = (byte) (raw - predictor);
+                row[i + 1] = value;
+                sum += Math.abs((int) value);
+            }
+            if (sum < best) {
+                best = sum;
+                bestType = type;
+            }
+        }
+        return filtered[bestType];
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Collects deflated bytes and emits them as IDAT chunks.
+     */
+    private final class IdatOutputStream extends OutputStream {
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            if (count > 0) {
+                writeChunk("IDAT", buffer, count);
+                count = 0;
+            }
+        }
+    }
+}
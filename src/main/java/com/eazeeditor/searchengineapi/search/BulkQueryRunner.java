@@ -0,0 +1,526 @@
+package com.eazeeditor.searchengineapi.search;
+
+import com.eazeeditor.searchengineapi.CustomSearchClient;
+import com.eazeeditor.searchengineapi.browser.BrowserManager;
+import com.eazeeditor.searchengineapi.objects.GoogleSearchResultObject;
+import com.google.api.services.customsearch.v1.model.Result;
+import com.google.api.services.customsearch.v1.model.Search;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import javadev.stringcollections.textreplacor.console.ColoredConsoleOutput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a file of search queries, one per line, through a search engine with a fixed number of queries in flight,
+ * and appends the results to a JSON lines file as the queries complete. The query file is streamed, so it can be
+ * larger than memory. The byte offset up to which every query is done is checkpointed, and a restarted run continues
+ * from there, also skipping the queries past the checkpoint whose results were already written, so no finished query
+ * runs twice. Throughput and the estimated time to completion are reported while running.
+ * <p>
+ * Usage: {@code BulkQueryRunner --input queries.txt --output results.jsonl --api-key KEY --cx ID [--concurrency 8]
+ * [--checkpoint results.jsonl.checkpoint]}, or {@code --engine scrape [--chrome /path/to/chrome]} to scrape Google
+ * in browsers instead of calling the Custom Search API.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class BulkQueryRunner {
+
+    /**
+     * Default number of queries in flight.
+     */
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    /**
+     * Default interval between two progress reports.
+     */
+    public static final Duration DEFAULT_PROGRESS_INTERVAL = Duration.ofSeconds(10);
+
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 1000;
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Searches a single query, it is called from many threads at once.
+     */
+    public interface SearchEngine {
+        List<GoogleSearchResultObject> search(String query) throws Exception;
+    }
+
+    private final SearchEngine engine;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private Duration progressInterval = DEFAULT_PROGRESS_INTERVAL;
+
+    /**
+     * @param engine the search engine the queries are run through.
+     */
+    public BulkQueryRunner(SearchEngine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("engine cannot be null");
+        }
+        this.engine = engine;
+    }
+
+    /**
+     * @param client the Custom Search client.
+     * @return a search engine calling the Custom Search API, a failed request fails the query.
+     */
+    public static SearchEngine customSearch(CustomSearchClient client) {
+        return query -> {
+            Search search = client.executeSearch(query);
+            if (search == null) {
+                throw new IOException("Custom Search request failed");
+            }
+            List<GoogleSearchResultObject> results = new ArrayList<>();
+            if (search.getItems() != null) {
+                for (Result item : search.getItems()) {
+                    results.add(new GoogleSearchResultObject(item.getTitle(), item.getLink(), item.getSnippet()));
+                }
+            }
+            return results;
+        };
+    }
+
+    /**
+     * @param searchAPI the scraper, preferably on a shared {@link BrowserManager} so queries run in warm browsers.
+     * @return a search engine scraping Google.
+     */
+    public static SearchEngine scraping(GoogleSearchAPI searchAPI) {
+        return searchAPI::search;
+    }
+
+    /**
+     * @param concurrency the number of queries in flight.
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+    }
+
+    public void setProgressInterval(Duration progressInterval) {
+        if (progressInterval == null || progressInterval.isNegative() || progressInterval.isZero()) {
+            throw new IllegalArgumentException("progressInterval must be positive");
+        }
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Runs every query of the input that is not done yet. Blank lines are skipped, a failed query is written with
+     * its error and counts as done.
+     * @param input      the query file, UTF-8, one query per line.
+     * @param output     the JSON lines result file, appended to.
+     * @param checkpoint the checkpoint file, created on first use.
+     * @return the number of queries run by this call.
+     * @throws IOException          if a file cannot be read or written, or the checkpoint belongs to another input.
+     * @throws InterruptedException if the thread is interrupted, the checkpoint then covers the completed queries.
+     */
+    public long run(Path input, Path output, Path checkpoint) throws IOException, InterruptedException {
+        Checkpoint start = Checkpoint.load(checkpoint, input);
+        Set<Long> alreadyWritten = readWrittenLines(output, start.line);
+        long totalLines = countLines(input);
+        Progress progress = new Progress(checkpoint, start);
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        Semaphore inFlight = new Semaphore(concurrency);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulk-query-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long startedAt = System.nanoTime();
+        long intervalMillis = progressInterval.toMillis();
+        reporter.scheduleAtFixedRate(() -> report(progress, totalLines, startedAt), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             SeekableByteChannel channel = Files.newByteChannel(input)) {
+            channel.position(start.offset);
+            LineReader reader = new LineReader(Channels.newInputStream(channel), start.offset);
+            long lineNumber = start.line;
+            String query;
+            try {
+                while ((query = reader.readLine()) != null && progress.failure == null) {
+                    long line = lineNumber++;
+                    long lineEnd = reader.getOffset();
+                    String trimmed = query.trim();
+                    if (trimmed.isEmpty() || alreadyWritten.contains(line)) {
+                        progress.complete(line, lineEnd);
+                        continue;
+                    }
+                    inFlight.acquire();
+                    executor.execute(() -> {
+                        try {
+                            OutputRecord record = search(line, trimmed);
+                            synchronized (writer) {
+                                writer.write(GSON.toJson(record));
+                                writer.write('\n');
+                                writer.flush();
+                            }
+                            progress.ran.incrementAndGet();
+                            if (record.error != null) {
+                                progress.failed.incrementAndGet();
+                            }
+                            progress.complete(line, lineEnd);
+                        } catch (IOException e) {
+                            progress.fail(e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } finally {
+                // Let the queries in flight finish before the output is closed, even when interrupted
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            reporter.shutdownNow();
+            progress.saveCheckpoint();
+        }
+        if (progress.failure != null) {
+            throw progress.failure;
+        }
+        report(progress, totalLines, startedAt);
+        ColoredConsoleOutput.printGreenText("[BulkQueryRunner] Done: " + progress.ran.get() + " queries run, "
+                + progress.failed.get() + " failed, results in " + output);
+        return progress.ran.get();
+    }
+
+    private OutputRecord search(long line, String query) {
+        OutputRecord record = new OutputRecord();
+        record.line = line;
+        record.query = query;
+        long startedAt = System.nanoTime();
+        try {
+            record.results = engine.search(query);
+        } catch (Exception e) {
+            record.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        record.latencyMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        return record;
+    }
+
+    private static void report(Progress progress, long totalLines, long startedAt) {
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+        long ran = progress.ran.get();
+        double qps = elapsedSeconds > 0 ? ran / elapsedSeconds : 0;
+        long done = progress.done.get();
+        long remaining = Math.max(0, totalLines - done);
+        String eta = qps > 0 ? formatDuration((long) (remaining / qps)) : "unknown";
+        ColoredConsoleOutput.printGreenText(String.format("[BulkQueryRunner] %d/%d lines done, %d failed, %.1f QPS, ETA %s",
+                done, totalLines, progress.failed.get(), qps, eta));
+    }
+
+    private static String formatDuration(long seconds) {
+        if (seconds >= 3600) {
+            return String.format("%dh %02dm", seconds / 3600, (seconds % 3600) / 60);
+        }
+        return String.format("%dm %02ds", seconds / 60, seconds % 60);
+    }
+
+    private static long countLines(Path input) throws IOException {
+        long lines = 0;
+        boolean pending = false;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(input), 1 << 16)) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        lines++;
+                        pending = false;
+                    } else {
+                        pending = true;
+                    }
+                }
+            }
+        }
+        return pending ? lines + 1 : lines;
+    }
+
+    /**
+     * Drops a line torn by a crash at the end of the output, then collects the input lines past the checkpoint whose
+     * results are already written.
+     */
+    private static Set<Long> readWrittenLines(Path output, long fromLine) throws IOException {
+        Set<Long> lines = new HashSet<>();
+        if (!Files.exists(output)) {
+            return lines;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(output.toFile(), "rw")) {
+            long end = file.length();
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            file.setLength(end);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(output, StandardCharsets.UTF_8)) {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                try {
+                    JsonElement line = JsonParser.parseString(text).getAsJsonObject().get("line");
+                    if (line != null && line.getAsLong() >= fromLine) {
+                        lines.add(line.getAsLong());
+                    }
+                } catch (JsonParseException | IllegalStateException e) {
+                    // Not a result line
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Reads UTF-8 lines and tracks the byte offset after each one, so the checkpoint can seek to any line boundary.
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+        private long offset;
+
+        private LineReader(InputStream in, long offset) {
+            this.in = in;
+            this.offset = offset;
+        }
+
+        /**
+         * @return the next line without its terminator, or null at the end of the file.
+         */
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        break;
+                    }
+                }
+                read = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                line.write(buffer, start, position - start);
+                offset += position - start;
+                if (position < limit) {
+                    // Consume the terminator
+                    position++;
+                    offset++;
+                    break;
+                }
+            }
+            if (!read) {
+                return null;
+            }
+            String text = line.toString(StandardCharsets.UTF_8);
+            return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+        }
+
+        /**
+         * @return the byte offset just past the last line read.
+         */
+        private long getOffset() {
+            return offset;
+        }
+    }
+
+    /**
+     * One line of the output.
+     */
+    private static final class OutputRecord {
+        private long line;
+        private String query;
+        private List<GoogleSearchResultObject> results;
+        private String error;
+        private long latencyMillis;
+    }
+
+    /**
+     * The first line not done yet and its byte offset, every line before it is done.
+     */
+    private static final class Checkpoint {
+        private String input;
+        private long line;
+        private long offset;
+
+        private static Checkpoint load(Path file, Path input) throws IOException {
+            Checkpoint checkpoint = null;
+            if (Files.exists(file)) {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    checkpoint = GSON.fromJson(reader, Checkpoint.class);
+                }
+            }
+            String inputPath = input.toAbsolutePath().normalize().toString();
+            if (checkpoint == null) {
+                checkpoint = new Checkpoint();
+                checkpoint.input = inputPath;
+            } else if (!inputPath.equals(checkpoint.input)) {
+                throw new IOException("Checkpoint " + file + " belongs to " + checkpoint.input + ", not to " + inputPath);
+            }
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Tracks completed lines, which finish out of order, and advances the checkpoint over the done prefix.
+     */
+    private static final class Progress {
+        private final Path checkpointFile;
+        private final Checkpoint checkpoint = new Checkpoint();
+        private final TreeMap<Long, Long> completedAhead = new TreeMap<>();
+        private final AtomicLong ran = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong done;
+        private long lastSavedAtMillis;
+        private volatile IOException failure;
+
+        private Progress(Path checkpointFile, Checkpoint start) {
+            this.checkpointFile = checkpointFile;
+            this.checkpoint.input = start.input;
+            this.checkpoint.line = start.line;
+            this.checkpoint.offset = start.offset;
+            this.done = new AtomicLong(start.line);
+        }
+
+        private synchronized void complete(long line, long lineEnd) {
+            completedAhead.put(line, lineEnd);
+            Long end;
+            while ((end = completedAhead.remove(checkpoint.line)) != null) {
+                checkpoint.line++;
+                checkpoint.offset = end;
+            }
+            done.incrementAndGet();
+            if (System.currentTimeMillis() - lastSavedAtMillis >= CHECKPOINT_INTERVAL_MILLIS) {
+                try {
+                    saveCheckpoint();
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+
+        private void fail(IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Writes the checkpoint through a temporary file, so a crash never leaves a truncated checkpoint.
+         */
+        private synchronized void saveCheckpoint() throws IOException {
+            Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            Files.write(temp, GSON.toJson(checkpoint).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            lastSavedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Runs a query file from the command line, see the class documentation for the arguments.
+     * @param args Command line arguments.
+     * @throws Exception if the run fails.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                usage("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        if (args.length % 2 != 0) {
+            usage("Missing value for " + args[args.length - 1]);
+        }
+        String input = options.get("input");
+        String output = options.get("output");
+        if (input == null || output == null) {
+            usage("--input and --output are required");
+        }
+        String checkpoint = options.getOrDefault("checkpoint", output + ".checkpoint");
+        String engineName = options.getOrDefault("engine", "api");
+
+        BrowserManager browserManager = null;
+        SearchEngine engine;
+        if ("api".equals(engineName)) {
+            String apiKey = options.get("api-key");
+            String cx = options.get("cx");
+            if (apiKey == null || cx == null) {
+                usage("--api-key and --cx are required with the api engine");
+            }
+            engine = customSearch(new CustomSearchClient(apiKey, cx));
+        } else if ("scrape".equals(engineName)) {
+            browserManager = new BrowserManager(options.get("chrome"));
+            engine = scraping(new GoogleSearchAPI(browserManager));
+        } else {
+            usage("Unknown engine: " + engineName);
+            return;
+        }
+
+        BulkQueryRunner runner = new BulkQueryRunner(engine);
+        if (options.containsKey("concurrency")) {
+            runner.setConcurrency(Integer.parseInt(options.get("concurrency")));
+        }
+        try {
+            runner.run(Paths.get(input), Paths.get(output), Paths.get(checkpoint));
+        } finally {
+            if (browserManager != null) {
+                browserManager.close();
+            }
+        }
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: BulkQueryRunner --input <queries.txt> --output <results.jsonl> [--checkpoint <file>] "
+                + "[--concurrency <n>] [--engine api|scrape] [--api-key <key> --cx <id>] [--chrome <chrome binary>]");
+        System.exit(2);
+    }
+}
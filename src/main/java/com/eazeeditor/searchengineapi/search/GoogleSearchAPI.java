@@ -1,14 +1,19 @@
 package com.eazeeditor.searchengineapi.search;
 
+import com.eazeeditor.searchengineapi.browser.BlockProfile;
+import com.eazeeditor.searchengineapi.browser.BrowserManager;
+import com.eazeeditor.searchengineapi.browser.BrowserPool;
+import com.eazeeditor.searchengineapi.browser.BrowserProfile;
+import com.eazeeditor.searchengineapi.browser.PageLoadStats;
+import com.eazeeditor.searchengineapi.browser.RequestInterceptor;
 import com.eazeeditor.searchengineapi.objects.GoogleSearchResultObject;
 import javadev.stringcollections.textreplacor.console.ColoredConsoleOutput;
 import org.jetbrains.annotations.NotNull;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
@@ -17,6 +22,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
@@ -32,14 +38,20 @@ public class GoogleSearchAPI {
     private static final By TITLE_SELECTOR = By.cssSelector("h3");
     // More specific selector for the description
     private static final By DESCRIPTION_SELECTOR = By.cssSelector("div.VwiC3b");
+    // Shared by all instances, concurrent searches of the same query run once
+    private static final SingleFlight<SearchOutcome> IN_FLIGHT_SEARCHES = new SingleFlight<>();
 
-    private final String driverPath;
+    private final BrowserManager browserManager;
+    private final boolean pooled;
+    private BlockProfile blockProfile = BlockProfile.NONE;
+    private volatile boolean coalesceQueries = true;
+    private PageLoadStats lastPageLoadStats;
 
     /**
      * Default constructor uses system PATH for ChromeDriver.
      */
     public GoogleSearchAPI() {
-        this.driverPath = null;
+        this((String) null);
     }
 
     /**
@@ -47,33 +59,103 @@ public class GoogleSearchAPI {
      * @param driverPath The path to the ChromeDriver executable.
      */
     public GoogleSearchAPI(String driverPath) {
-        this.driverPath = driverPath;
+        this.browserManager = new BrowserManager(driverPath);
+        this.pooled = false;
     }
 
+    /**
+     * Constructor to search in warm browsers of a shared {@link BrowserManager}, whose lifecycle stays with the caller.
+     * The automation profile runs in at most one browser at a time, so concurrent searches wait for each other.
+     * @param browserManager The browser fleet, shared with other services.
+     */
+    public GoogleSearchAPI(BrowserManager browserManager) {
+        if (browserManager == null) {
+            throw new IllegalArgumentException("browserManager cannot be null");
+        }
+        this.browserManager = browserManager;
+        this.pooled = true;
+    }
+
+    /**
+     * Sets the requests to block in the headless browser, {@link BlockProfile#SERP_SCRAPING} only keeps what the
+     * result scraping needs. The visible browser launched for a CAPTCHA never blocks anything.
+     * @param blockProfile The requests to block.
+     */
+    public void setBlockProfile(BlockProfile blockProfile) {
+        this.blockProfile = blockProfile != null ? blockProfile : BlockProfile.NONE;
+    }
+
+    /**
+     * Sets whether a search joins a search of the same query already running in this process, in any instance with
+     * the same browser manager, pooling and block profile, instead of opening its own browser. Queries are compared
+     * ignoring extra whitespace. Enabled by default.
+     * @param coalesceQueries True to share concurrent identical searches.
+     */
+    public void setCoalesceQueries(boolean coalesceQueries) {
+        this.coalesceQueries = coalesceQueries;
+    }
+
+    /**
+     * @return The page load statistics of the last headless search with a block profile, or null if there was none.
+     */
+    public PageLoadStats getLastPageLoadStats() {
+        return lastPageLoadStats;
+    }
 
     /**
      * Searches Google for the given query and returns a list of search results.
      * It initially runs in headless mode. If a CAPTCHA is detected, it relaunches
      * in a visible browser for the user to solve it.
      *
+     * A search of a query that is already being searched concurrently waits for that search and gets a copy of its
+     * results, see {@link #setCoalesceQueries(boolean)}.
+     *
      * @param query The search query.
      * @return A list of GoogleSearchResultObject.
      * @throws UnsupportedEncodingException if the query string cannot be URL encoded.
      */
     public List<GoogleSearchResultObject> search(String query) throws UnsupportedEncodingException {
         String searchUrl = GOOGLE_SEARCH_URL_PREFIX + URLEncoder.encode(query, StandardCharsets.UTF_8) + GOOGLE_SEARCH_URL_SUFFIX;
+        SearchOutcome outcome;
+        if (coalesceQueries) {
+            // Only searches that would load the same page through the same fleet are shared
+            List<Object> key = Arrays.asList(browserManager, pooled, blockProfile, SingleFlight.normalize(query));
+            outcome = IN_FLIGHT_SEARCHES.execute(key, () -> scrapeSearch(searchUrl));
+        } else {
+            outcome = scrapeSearch(searchUrl);
+        }
+        if (outcome.pageLoadStats != null) {
+            lastPageLoadStats = outcome.pageLoadStats;
+        }
+        // Every caller gets its own copy of the shared results
+        return new ArrayList<>(outcome.results);
+    }
 
+    private SearchOutcome scrapeSearch(String searchUrl) {
         // Start headless
-        WebDriver driver = createDriver(true);
+        BrowserPool.Lease browser = openBrowser(BrowserProfile.SEARCH_HEADLESS, pooled);
         try {
+            WebDriver driver = browser.getDriver();
+            RequestInterceptor interceptor = null;
+            if (!blockProfile.isEmpty()) {
+                interceptor = RequestInterceptor.attach(browser.getDevTools(), blockProfile);
+            }
             driver.get(searchUrl);
+            PageLoadStats pageLoadStats = null;
+            if (interceptor != null) {
+                pageLoadStats = interceptor.collectStats((JavascriptExecutor) driver, searchUrl);
+                ColoredConsoleOutput.printGreenText("[GoogleSearchAPI] " + pageLoadStats);
+            }
 
             // Check for CAPTCHA
             if (isCaptchaPresent(driver)) {
                 ColoredConsoleOutput.printYellowText("[GoogleSearchAPI] CAPTCHA detected. Relaunching in non-headless mode for manual intervention.");
-                // Relaunch in non-headless mode for user to solve CAPTCHA
-                driver.quit();
-                driver = createDriver(false);
+                // Relaunch in non-headless mode for user to solve CAPTCHA, quitting the headless browser releases the profile lock.
+                // The visible browser is never pooled, so it cannot hold the lock once the CAPTCHA is solved.
+                browser.abort();
+                browser.close();
+                browser = openBrowser(BrowserProfile.SEARCH, false);
+                driver = browser.getDriver();
                 driver.get(searchUrl);
 
                 // Wait for user to solve CAPTCHA and for search results to appear
@@ -81,32 +163,50 @@ public class GoogleSearchAPI {
                 wait.until(ExpectedConditions.presenceOfElementLocated(SEARCH_RESULTS_CONTAINER));
             }
 
-            return scrapeResults(driver);
+            return new SearchOutcome(scrapeResults(driver), pageLoadStats);
         } finally {
-            driver.quit();
+            browser.close();
         }
     }
 
     /**
-     * Creates a new ChromeDriver instance.
+     * Opens a browser on the automation profile, creating the profile from the default Chrome profile on first use.
      *
-     * @param headless If true, the browser will run in headless mode.
-     * @return A new WebDriver instance.
+     * @param profile The search profile, headless or visible.
+     * @param pooled  True for a warm pooled browser, false for a browser quit when the lease is closed.
+     * @return A lease on the browser.
      */
-    private WebDriver createDriver(boolean headless) {
-        ChromeOptions options = new ChromeOptions();
-
-        // Set custom binary path if provided
-        if (this.driverPath != null && !this.driverPath.isEmpty()) {
-            options.setBinary(this.driverPath);
+    private BrowserPool.Lease openBrowser(BrowserProfile profile, boolean pooled) {
+        String automationUserDataPath = getAutomationProfilePath();
+        if (automationUserDataPath != null) {
+            createAutomationProfileIfMissing(automationUserDataPath);
         }
-        if (headless) {
-            options.addArguments("--headless=new");
+
+        // Point to the parent User Data directory, and explicitly tell Chrome to use the "Default" profile within it.
+        BrowserProfile searchProfile = profile.withUserDataDir(automationUserDataPath).withProfileDirectory("Default");
+        try {
+            return pooled ? browserManager.acquire(searchProfile) : browserManager.launch(searchProfile);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a browser", e);
         }
+    }
 
-        options.setExperimentalOption("excludeSwitches", new String[]{"enable-automation"});
+    /**
+     * Quits the idle pooled browser running on the automation profile, so the profile files are no longer in use.
+     *
+     * @param automationUserDataPath The automation user data directory.
+     */
+    private void releaseAutomationProfile(String automationUserDataPath) {
+        browserManager.evict(BrowserProfile.SEARCH_HEADLESS.withUserDataDir(automationUserDataPath).withProfileDirectory("Default"));
+    }
 
-        String automationUserDataPath = getAutomationProfilePath();
+    /**
+     * Copies the default Chrome profile into the automation user data directory if its "Default" profile doesn't exist.
+     *
+     * @param automationUserDataPath The automation user data directory.
+     */
+    private void createAutomationProfileIfMissing(String automationUserDataPath) {
         java.io.File automationUserDataDir = new java.io.File(automationUserDataPath);
         java.io.File automationProfileDir = new java.io.File(automationUserDataDir, "Default");
 
@@ -124,21 +224,6 @@ public class GoogleSearchAPI {
                 }
             }
         }
-
-        // Point to the parent User Data directory, not the Default profile itself.
-        options.addArguments("user-data-dir=" + automationUserDataPath);
-        // Explicitly tell Chrome to use the "Default" profile within that User Data directory.
-        options.addArguments("--profile-directory=Default");
-
-        options.addArguments("--disable-gpu");
-        options.addArguments("--window-size=1920,1200");
-        options.addArguments("--ignore-certificate-errors");
-        options.addArguments("--disable-extensions");
-        options.addArguments("--no-sandbox");
-        options.addArguments("--disable-dev-shm-usage");
-        options.addArguments("user-agent=Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/125.0.0.0 Safari/537.36");
-
-        return new ChromeDriver(options);
     }
 
     /**
@@ -147,6 +232,7 @@ public class GoogleSearchAPI {
      */
     public void deleteAutomationProfile() {
         String automationProfilePath = getAutomationProfilePath();
+        releaseAutomationProfile(automationProfilePath);
         java.io.File profileDir = new java.io.File(automationProfilePath);
         if (profileDir.exists()) {
             ColoredConsoleOutput.printYellowText("[GoogleSearchAPI] Deleting automation profile at: " + automationProfilePath);
@@ -330,6 +416,7 @@ public class GoogleSearchAPI {
      */
     public void updateAutomationProfile() {
         String automationProfilePath = getAutomationProfilePath();
+        releaseAutomationProfile(automationProfilePath);
         java.io.File automationProfileDir = new java.io.File(automationProfilePath);
 
         // Delete existing automation profile
@@ -384,6 +471,16 @@ public class GoogleSearchAPI {
         }
     }
 
+    /**
+     * The results of a search and the statistics of its page load, shared by the callers that joined it.
+     */
+    private static final class SearchOutcome {
+        private final List<GoogleSearchResultObject> results;
+        private final PageLoadStats pageLoadStats;
 
-
+        private SearchOutcome(List<GoogleSearchResultObject> results, PageLoadStats pageLoadStats) {
+            this.results = results;
+            this.pageLoadStats = pageLoadStats;
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package com.eazeeditor.searchengineapi.search;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a key is in flight, other callers asking for the same key
+ * wait for it and get its result, or its exception, instead of running their own. Nothing is cached, the next call
+ * after completion runs again. This cuts the cost of duplicate searches under load without waiting for a cache to fill.
+ * @author nurujjamanpollob
+ * @version 1.0
+ * @param <V> the type of the result.
+ */
+public class SingleFlight<V> {
+
+    private final ConcurrentHashMap<Object, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder sharedCalls = new LongAdder();
+
+    /**
+     * Runs the call, or joins the call already in flight for the same key.
+     * @param key  the key of the call, callers with equal keys share one call. It must cover everything the result
+     *             depends on, for example a list of the query and of the settings of the caller.
+     * @param call the call, only run if no call for the key is in flight.
+     * @return the result of the call, the same instance for every caller that shared it.
+     */
+    public V execute(Object key, Supplier<V> call) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            sharedCalls.increment();
+            return join(existing);
+        }
+        try {
+            V result = call.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * @return the number of calls in flight.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return the number of calls that joined a call in flight instead of running.
+     */
+    public long getSharedCallCount() {
+        return sharedCalls.sum();
+    }
+
+    /**
+     * @param query a search query.
+     * @return the query with its whitespace normalized, queries differing only in spacing share one call. The case is
+     * kept, search operators such as OR are case-sensitive.
+     */
+    public static String normalize(String query) {
+        return query.trim().replaceAll("\\s+", " ");
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Rethrow what the call threw, as the caller that ran it saw it
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.eazeeditor.searchengineapi.usage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates a usage log written by a {@link UsageRecorder} into per hour or per day totals of every API key and
+ * search engine, for quota and capacity planning. Buckets are aligned on UTC, a window is counted in the bucket it
+ * started in. The log is streamed, so it can grow large.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class UsageLogReader {
+
+    private static final Gson GSON = new Gson();
+
+    private UsageLogReader() {
+    }
+
+    /**
+     * @param logFile the usage log.
+     * @return the usage per hour, API key and search engine, ordered by hour.
+     * @throws IOException if the log cannot be read.
+     */
+    public static List<UsageRecord> aggregateByHour(Path logFile) throws IOException {
+        return aggregate(logFile, Duration.ofHours(1).toMillis());
+    }
+
+    /**
+     * @param logFile the usage log.
+     * @return the usage per day, API key and search engine, ordered by day.
+     * @throws IOException if the log cannot be read.
+     */
+    public static List<UsageRecord> aggregateByDay(Path logFile) throws IOException {
+        return aggregate(logFile, Duration.ofDays(1).toMillis());
+    }
+
+    private static List<UsageRecord> aggregate(Path logFile, long bucketMillis) throws IOException {
+        Map<String, UsageRecord> buckets = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                UsageRecord record;
+                try {
+                    record = GSON.fromJson(line, UsageRecord.class);
+                } catch (JsonParseException e) {
+                    continue; // Torn by a crash
+                }
+                if (record == null) {
+                    continue;
+                }
+                long bucketStart = record.getWindowStartMillis() - Math.floorMod(record.getWindowStartMillis(), bucketMillis);
+                String key = bucketStart + " " + record.getKeyFingerprint() + " " + record.getCx();
+                UsageRecord bucket = buckets.computeIfAbsent(key, k -> new UsageRecord(bucketStart, bucketStart + bucketMillis,
+                        record.getKeyFingerprint(), record.getCx(), 0, 0, 0, 0));
+                bucket.add(record);
+            }
+        }
+        List<UsageRecord> result = new ArrayList<>(buckets.values());
+        result.sort(Comparator.comparingLong(UsageRecord::getWindowStartMillis));
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package com.eazeeditor.searchengineapi.usage;
+
+/**
+ * Usage of one API key and search engine during a time window, one line of the usage log written by a
+ * {@link UsageRecorder}, or a per hour or per day total built by a {@link UsageLogReader}.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class UsageRecord {
+
+    private long windowStartMillis;
+    private long windowEndMillis;
+    private String keyFingerprint;
+    private String cx;
+    private long requests;
+    private long failures;
+    private long totalLatencyMillis;
+    private long maxLatencyMillis;
+
+    public UsageRecord() {
+    }
+
+    public UsageRecord(long windowStartMillis, long windowEndMillis, String keyFingerprint, String cx,
+                       long requests, long failures, long totalLatencyMillis, long maxLatencyMillis) {
+        this.windowStartMillis = windowStartMillis;
+        this.windowEndMillis = windowEndMillis;
+        this.keyFingerprint = keyFingerprint;
+        this.cx = cx;
+        this.requests = requests;
+        this.failures = failures;
+        this.totalLatencyMillis = totalLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    public long getWindowStartMillis() {
+        return windowStartMillis;
+    }
+
+    public long getWindowEndMillis() {
+        return windowEndMillis;
+    }
+
+    /**
+     * @return the fingerprint of the API key, see {@link UsageRecorder#fingerprint(String)}.
+     */
+    public String getKeyFingerprint() {
+        return keyFingerprint;
+    }
+
+    /**
+     * @return the ID of the programmable search engine.
+     */
+    public String getCx() {
+        return cx;
+    }
+
+    /**
+     * @return the number of requests, failed ones included.
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getTotalLatencyMillis() {
+        return totalLatencyMillis;
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    public double getAverageLatencyMillis() {
+        return requests == 0 ? 0 : (double) totalLatencyMillis / requests;
+    }
+
+    /**
+     * Adds the usage of another record of the same key and search engine, the window of this record is kept.
+     * @param other the record to add.
+     */
+    void add(UsageRecord other) {
+        requests += other.requests;
+        failures += other.failures;
+        totalLatencyMillis += other.totalLatencyMillis;
+        maxLatencyMillis = Math.max(maxLatencyMillis, other.maxLatencyMillis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: %d requests, %d failures, avg %.0f ms, max %d ms",
+                keyFingerprint, cx, requests, failures, getAverageLatencyMillis(), maxLatencyMillis);
+    }
+}
@@ -0,0 +1,173 @@
+package com.eazeeditor.searchengineapi.usage;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts requests, failures and latencies per API key and search engine, and appends them to a usage log, one JSON
+ * line per key and search engine and flush window. Recording a request only touches lock-free counters, so it can be
+ * called on every search from any number of threads. The log is flushed in the background at a fixed interval and on
+ * close, and can be aggregated per hour or per day with a {@link UsageLogReader}.
+ * API keys are never written to the log, only their fingerprint.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class UsageRecorder implements AutoCloseable {
+
+    /**
+     * Default interval between two flushes of the counters to the log.
+     */
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMinutes(1);
+
+    private static final Gson GSON = new Gson();
+
+    private final Path logFile;
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private long windowStartMillis = System.currentTimeMillis();
+    private volatile boolean closed;
+
+    /**
+     * @param logFile the usage log, created if it does not exist and appended to otherwise.
+     */
+    public UsageRecorder(Path logFile) {
+        this(logFile, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param logFile       the usage log, created if it does not exist and appended to otherwise.
+     * @param flushInterval the interval between two flushes, which is the finest time resolution of the log.
+     */
+    public UsageRecorder(Path logFile, Duration flushInterval) {
+        if (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("flushInterval must be positive");
+        }
+        this.logFile = logFile;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "usage-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                flush();
+            } catch (IOException e) {
+                // The counters of a failed flush are lost, recording goes on
+                System.err.println("Failed to write usage log " + logFile + " - " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records one request.
+     * @param apiKey        the API key the request was made with.
+     * @param cx            the ID of the programmable search engine.
+     * @param latencyMillis the time the request took.
+     * @param successful    false if the request failed.
+     */
+    public void record(String apiKey, String cx, long latencyMillis, boolean successful) {
+        if (closed) {
+            return;
+        }
+        String fingerprint = fingerprints.computeIfAbsent(apiKey, UsageRecorder::fingerprint);
+        Counters counter = counters.computeIfAbsent(fingerprint + " " + cx, k -> new Counters(fingerprint, cx));
+        counter.requests.increment();
+        if (!successful) {
+            counter.failures.increment();
+        }
+        counter.totalLatencyMillis.add(latencyMillis);
+        counter.maxLatencyMillis.accumulate(latencyMillis);
+    }
+
+    /**
+     * Appends the usage since the last flush to the log and resets the counters.
+     * Requests recorded while the flush runs may be split between two windows, none is lost.
+     * @throws IOException if the log cannot be written.
+     */
+    public synchronized void flush() throws IOException {
+        long windowEndMillis = System.currentTimeMillis();
+        List<UsageRecord> records = new ArrayList<>();
+        for (Counters counter : counters.values()) {
+            long requests = counter.requests.sumThenReset();
+            if (requests == 0) {
+                continue;
+            }
+            records.add(new UsageRecord(windowStartMillis, windowEndMillis, counter.keyFingerprint, counter.cx, requests,
+                    counter.failures.sumThenReset(), counter.totalLatencyMillis.sumThenReset(),
+                    counter.maxLatencyMillis.getThenReset()));
+        }
+        windowStartMillis = windowEndMillis;
+        if (records.isEmpty()) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            for (UsageRecord record : records) {
+                writer.write(GSON.toJson(record));
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Stops the background flushes and flushes the remaining usage.
+     * @throws IOException if the log cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * @param apiKey an API key.
+     * @return the fingerprint the key is logged under, the first 12 hex digits of its SHA-256.
+     */
+    public static String fingerprint(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 6; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class Counters {
+        private final String keyFingerprint;
+        private final String cx;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalLatencyMillis = new LongAdder();
+        private final LongAccumulator maxLatencyMillis = new LongAccumulator(Math::max, 0);
+
+        private Counters(String keyFingerprint, String cx) {
+            this.keyFingerprint = keyFingerprint;
+            this.cx = cx;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.eazeeditor.searchengineapi.website;
+
+import javadev.stringcollections.textreplacor.io.FileHashDriver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Blob store shared across downloaded sites, where every asset is stored once under the SHA-256 of its body.
+ * Site trees reference the blobs either with hard links, which look like regular files to any reader,
+ * or through a per-site manifest ({@link #MANIFEST_FILE_NAME}) in sha256sum format, mapping relative paths to hashes.
+ * Storing an asset that is already in the store costs no additional write besides the link.
+ * <p>
+ * Hard linked files share the blob, so in {@link LinkMode#HARD_LINK} mode blobs are made read-only, and files in the
+ * site trees must be replaced rather than edited in place.
+ * When a hard link cannot be created, for example because the site tree is on another volume, the manifest is used instead.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class ContentAddressedStore {
+
+    /**
+     * Name of the manifest file written in the root of a site tree.
+     */
+    public static final String MANIFEST_FILE_NAME = "cas-manifest.sha256";
+
+    /**
+     * How site trees reference the blobs of the store.
+     */
+    public enum LinkMode {
+        /**
+         * Hard link every asset into the site tree, falling back to the manifest if linking is not possible.
+         */
+        HARD_LINK,
+        /**
+         * Only record the assets in the site manifest, the site tree holds no copy of the blobs.
+         */
+        MANIFEST
+    }
+
+    private final Path root;
+    private final LinkMode linkMode;
+    private final Map<Path, Map<String, String>> manifests = new HashMap<>();
+
+    /**
+     * @param storePath directory of the blob store, created if it does not exist.
+     * @param linkMode  how site trees reference the blobs.
+     * @throws IOException if the store directory cannot be created.
+     */
+    public ContentAddressedStore(String storePath, LinkMode linkMode) throws IOException {
+        this.root = Paths.get(storePath).toAbsolutePath();
+        this.linkMode = linkMode;
+        Files.createDirectories(root.resolve("tmp"));
+    }
+
+    public ContentAddressedStore(String storePath) throws IOException {
+        this(storePath, LinkMode.HARD_LINK);
+    }
+
+    public LinkMode getLinkMode() {
+        return linkMode;
+    }
+
+    /**
+     * Stores an in-memory body, such as a rewritten CSS file, and references it from the site tree.
+     * @param content      the body.
+     * @param siteRoot     the root directory of the site tree.
+     * @param relativePath the path of the asset relative to the site root.
+     * @return the path of the blob.
+     * @throws IOException if the blob cannot be stored or referenced.
+     */
+    public Path putBytes(byte[] content, Path siteRoot, String relativePath) throws IOException {
+        String hash = FileHashDriver.generateSHA256(content);
+        if (hash == null) {
+            throw new IOException("SHA-256 is not available in the security provider");
+        }
+        Path blob = blobPath(hash);
+        if (!Files.exists(blob)) {
+            Path temp = Files.createTempFile(root.resolve("tmp"), hash, ".tmp");
+            try {
+                Files.write(temp, content);
+                publish(temp, blob);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        reference(blob, hash, siteRoot, relativePath);
+        return blob;
+    }
+
+    /**
+     * Moves a downloaded file into the store, or discards it if the store already holds the same content,
+     * and references the blob from the site tree.
+     * @param file         the downloaded file, it no longer exists once this method returns.
+     * @param siteRoot     the root directory of the site tree.
+     * @param relativePath the path of the asset relative to the site root.
+     * @return the path of the blob.
+     * @throws IOException if the blob cannot be stored or referenced.
+     */
+    public Path putFile(Path file, Path siteRoot, String relativePath) throws IOException {
+        String hash = FileHashDriver.generateSHA256(file.toString());
+        if (hash == null) {
+            throw new IOException("Failed to hash " + file);
+        }
+        Path blob = blobPath(hash);
+        if (Files.exists(blob)) {
+            Files.deleteIfExists(file);
+        } else {
+            publish(file, blob);
+        }
+        reference(blob, hash, siteRoot, relativePath);
+        return blob;
+    }
+
+    /**
+     * Creates an empty temporary file inside the store, so a download can be moved into the store without crossing volumes.
+     * @return the temporary file, to be passed to {@link #putFile(Path, Path, String)}.
+     * @throws IOException if the file cannot be created.
+     */
+    public Path createTempFile() throws IOException {
+        return Files.createTempFile(root.resolve("tmp"), "asset", ".tmp");
+    }
+
+    /**
+     * Resolves an asset of a site tree to its blob through the site manifest.
+     * @param siteRoot     the root directory of the site tree.
+     * @param relativePath the path of the asset relative to the site root.
+     * @return the blob path, or null if the asset is not in the manifest.
+     * @throws IOException if the manifest cannot be read.
+     */
+    public Path resolve(Path siteRoot, String relativePath) throws IOException {
+        Path manifest = siteRoot.resolve(MANIFEST_FILE_NAME);
+        if (!Files.exists(manifest)) {
+            return null;
+        }
+        String normalized = relativePath.replace('\\', '/');
+        String hash = null;
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            // sha256sum format: "<hash>  <path>", later entries win
+            int separator = line.indexOf("  ");
+            if (separator > 0 && line.substring(separator + 2).equals(normalized)) {
+                hash = line.substring(0, separator);
+            }
+        }
+        return hash == null ? null : blobPath(hash);
+    }
+
+    /**
+     * Blobs are sharded by the first two hex digits of the hash to keep directories small.
+     */
+    private Path blobPath(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private void publish(Path source, Path blob) throws IOException {
+        Files.createDirectories(blob.getParent());
+        try {
+            Files.move(source, blob, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, blob);
+        } catch (FileAlreadyExistsException e) {
+            // Another download stored the same content in the meantime
+            Files.deleteIfExists(source);
+            return;
+        }
+        if (linkMode == LinkMode.HARD_LINK) {
+            // An edit through any hard link would corrupt the asset in every site sharing the blob
+            try {
+                Files.setPosixFilePermissions(blob, PosixFilePermissions.fromString("r--r--r--"));
+            } catch (UnsupportedOperationException e) {
+                blob.toFile().setReadOnly();
+            }
+        }
+    }
+
+    private void reference(Path blob, String hash, Path siteRoot, String relativePath) throws IOException {
+        Path target = siteRoot.resolve(relativePath);
+        if (linkMode == LinkMode.HARD_LINK) {
+            try {
+                Files.createDirectories(target.getParent());
+                Files.deleteIfExists(target);
+                Files.createLink(target, blob);
+                return;
+            } catch (UnsupportedOperationException | IOException e) {
+                System.err.println("Could not hard link " + target + " to the content store, recording it in the manifest - " + e.getMessage());
+            }
+        }
+        recordManifestEntry(siteRoot, hash, relativePath);
+    }
+
+    /**
+     * Appends an entry to the site manifest, unless the manifest already maps the path to the same hash.
+     */
+    private synchronized void recordManifestEntry(Path siteRoot, String hash, String relativePath) throws IOException {
+        Path manifest = siteRoot.toAbsolutePath().normalize().resolve(MANIFEST_FILE_NAME);
+        Map<String, String> entries = manifests.get(manifest);
+        if (entries == null) {
+            entries = loadManifest(manifest);
+            manifests.put(manifest, entries);
+        }
+        String normalized = relativePath.replace('\\', '/');
+        if (hash.equals(entries.put(normalized, hash))) {
+            // Re-downloaded with the same content
+            return;
+        }
+        Files.createDirectories(manifest.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(hash + "  " + normalized);
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Reads the entries of a site manifest, and rewrites it without the entries superseded by a later one.
+     */
+    private Map<String, String> loadManifest(Path manifest) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        if (!Files.exists(manifest)) {
+            return entries;
+        }
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            int separator = line.indexOf("  ");
+            if (separator > 0) {
+                // Later entries win, as in resolve()
+                entries.remove(line.substring(separator + 2));
+                entries.put(line.substring(separator + 2), line.substring(0, separator));
+            }
+        }
+        if (entries.size() < lines.size()) {
+            Path temp = manifest.resolveSibling(MANIFEST_FILE_NAME + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    writer.write(entry.getValue() + "  " + entry.getKey());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,157 @@
+package com.eazeeditor.searchengineapi.website;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record of every URL fetched into a mirrored site, stored as {@link #FILE_NAME} in the root of the site tree.
+ * It keeps the validators (ETag, Last-Modified) and the content hash of each resource, and for CSS and JS files
+ * the URLs they reference, so an incremental run can revalidate resources conditionally and skip the unchanged ones.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class DownloadManifest {
+
+    /**
+     * Name of the manifest file in the root of the site tree.
+     */
+    public static final String FILE_NAME = "download-manifest.json";
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Type ENTRIES_TYPE = new TypeToken<LinkedHashMap<String, Entry>>() {}.getType();
+
+    private final Path file;
+    private final Map<String, Entry> entries;
+
+    private DownloadManifest(Path file, Map<String, Entry> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the manifest of a site tree, or returns an empty one if the site was not mirrored before.
+     * @param siteRoot the root directory of the site tree.
+     * @return the manifest.
+     * @throws IOException if an existing manifest cannot be read.
+     */
+    public static DownloadManifest load(Path siteRoot) throws IOException {
+        Path file = siteRoot.resolve(FILE_NAME);
+        Map<String, Entry> entries = null;
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                entries = GSON.fromJson(reader, ENTRIES_TYPE);
+            }
+        }
+        return new DownloadManifest(file, entries != null ? entries : new LinkedHashMap<>());
+    }
+
+    public synchronized Entry get(String url) {
+        return entries.get(url);
+    }
+
+    public synchronized void put(String url, Entry entry) {
+        entries.put(url, entry);
+    }
+
+    /**
+     * @return the total size of all recorded resources, i.e. the bytes a full download would transfer.
+     */
+    public synchronized long getTotalSize() {
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += entry.size;
+        }
+        return total;
+    }
+
+    /**
+     * Writes the manifest through a temporary file, so an interrupted run never leaves a truncated manifest.
+     * @throws IOException if the manifest cannot be written.
+     */
+    public synchronized void save() throws IOException {
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            GSON.toJson(entries, ENTRIES_TYPE, writer);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * A fetched resource.
+     */
+    public static class Entry {
+        private String relativePath;
+        private String contentType;
+        private String etag;
+        private String lastModified;
+        private String sha256;
+        private long size;
+        private List<String> dependencies = new ArrayList<>();
+
+        public Entry() {
+        }
+
+        public Entry(String relativePath, String contentType, String etag, String lastModified, String sha256, long size) {
+            this.relativePath = relativePath;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+            this.size = size;
+        }
+
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return absolute URLs of the resources referenced by a CSS or JS file.
+         */
+        public List<String> getDependencies() {
+            return dependencies;
+        }
+
+        public void setDependencies(List<String> dependencies) {
+            this.dependencies = dependencies;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.eazeeditor.searchengineapi.website;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transfer statistics of a single {@link WebsiteDownloadService#downloadEntireWebsite(String, String)} run.
+ * In incremental mode, resources confirmed unchanged by the server are counted as reused,
+ * so the transferred bytes can be compared against what a full download would have cost.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class DownloadStats {
+
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final AtomicLong bytesReused = new AtomicLong();
+    private final AtomicLong resourcesFetched = new AtomicLong();
+    private final AtomicLong resourcesNotModified = new AtomicLong();
+
+    void recordFetched(long bytes) {
+        resourcesFetched.incrementAndGet();
+        bytesTransferred.addAndGet(bytes);
+    }
+
+    void recordNotModified(long bytes) {
+        resourcesNotModified.incrementAndGet();
+        bytesReused.addAndGet(bytes);
+    }
+
+    /**
+     * @return the body bytes received from the network.
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    /**
+     * @return the bytes of resources that were revalidated and kept from the previous download.
+     */
+    public long getBytesReused() {
+        return bytesReused.get();
+    }
+
+    /**
+     * @return the bytes a full, non-incremental download of the same resources would have transferred.
+     */
+    public long getFullDownloadBytes() {
+        return getBytesTransferred() + getBytesReused();
+    }
+
+    public long getResourcesFetched() {
+        return resourcesFetched.get();
+    }
+
+    public long getResourcesNotModified() {
+        return resourcesNotModified.get();
+    }
+
+    @Override
+    public String toString() {
+        long full = getFullDownloadBytes();
+        double saved = full == 0 ? 0 : 100.0 * getBytesReused() / full;
+        return String.format("Transferred %d of %d bytes (%.1f%% saved), %d resources fetched, %d not modified",
+                getBytesTransferred(), full, saved, getResourcesFetched(), getResourcesNotModified());
+    }
+}
@@ -0,0 +1,144 @@
+package com.eazeeditor.searchengineapi.website;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packages a downloaded site straight into a zip archive as the assets arrive, instead of writing a directory tree
+ * and zipping it afterwards. Already compressed formats (images, fonts, media, archives) are deflated without
+ * compression to avoid pointless recompression, everything else is deflated at the default level. Zip64 extensions are used automatically for large archives.
+ * Each entry name is written once, later writes of the same name are ignored.
+ * A zip stream cannot take an entry back, so once an entry fails the archive is broken: later writes fail, and
+ * {@link #close()} deletes the archive and reports the failure instead of leaving a corrupt archive behind.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class SiteZipWriter implements Closeable {
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "png", "jpg", "jpeg", "gif", "webp", "avif", "heic",
+            "woff", "woff2",
+            "mp3", "mp4", "m4a", "m4v", "webm", "ogg", "ogv", "mov",
+            "zip", "gz", "tgz", "br", "bz2", "xz", "7z", "rar", "jar", "pdf"));
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path zipFile;
+    private final ZipOutputStream zipOut;
+    private final Set<String> entryNames = new HashSet<>();
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * @param zipFile the archive to create, replaced if it exists.
+     * @throws IOException if the archive cannot be created.
+     */
+    public SiteZipWriter(Path zipFile) throws IOException {
+        Path parent = zipFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.zipFile = zipFile;
+        this.zipOut = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(zipFile), BUFFER_SIZE));
+    }
+
+    /**
+     * @param entryName the entry name, using '/' as separator.
+     * @return true if the entry was already written.
+     */
+    public synchronized boolean contains(String entryName) {
+        return entryNames.contains(entryName);
+    }
+
+    /**
+     * Writes an in-memory body, such as a rewritten CSS file or the HTML page.
+     * @param entryName the entry name, using '/' as separator.
+     * @param content   the body.
+     * @throws IOException if the entry cannot be written.
+     */
+    public synchronized void putBytes(String entryName, byte[] content) throws IOException {
+        putEntry(entryName, out -> out.write(content));
+    }
+
+    /**
+     * Writes the content of a downloaded file.
+     * @param entryName the entry name, using '/' as separator.
+     * @param file      the downloaded file.
+     * @throws IOException if the entry cannot be written.
+     */
+    public synchronized void putFile(String entryName, Path file) throws IOException {
+        putEntry(entryName, out -> Files.copy(file, out));
+    }
+
+    /**
+     * Finishes the archive, or deletes it if an entry failed.
+     * @throws IOException if the archive cannot be finished, or was deleted because an entry failed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            zipOut.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            Files.deleteIfExists(zipFile);
+            throw new IOException("Zip archive " + zipFile + " deleted, it is incomplete", failure);
+        }
+    }
+
+    /**
+     * Every entry is DEFLATED, so its CRC and sizes are written after the body and the body is read only once.
+     * Already compressed formats are deflated at level 0, which stores them in raw blocks.
+     */
+    private void putEntry(String entryName, EntryBody body) throws IOException {
+        if (failure != null) {
+            throw new IOException("Zip archive " + zipFile + " is broken by an earlier failed entry", failure);
+        }
+        if (entryNames.contains(entryName)) {
+            return;
+        }
+        ZipEntry entry = new ZipEntry(entryName);
+        entry.setMethod(ZipEntry.DEFLATED);
+        zipOut.setLevel(isCompressed(entryName) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+        try {
+            zipOut.putNextEntry(entry);
+            body.writeTo(zipOut);
+            zipOut.closeEntry();
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        // Only a complete entry counts as written
+        entryNames.add(entryName);
+    }
+
+    private static boolean isCompressed(String entryName) {
+        int dot = entryName.lastIndexOf('.');
+        if (dot < 0 || dot < entryName.lastIndexOf('/')) {
+            return false;
+        }
+        return COMPRESSED_EXTENSIONS.contains(entryName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private interface EntryBody {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
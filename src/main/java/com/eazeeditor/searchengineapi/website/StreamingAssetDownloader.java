@@ -0,0 +1,345 @@
+package com.eazeeditor.searchengineapi.website;
+
+import javadev.stringcollections.textreplacor.console.ColoredConsoleOutput;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads binary assets straight to disk through a {@link FileChannel}, so the body is never held in memory.
+ * The body is written to a temporary ".part" file next to the target and atomically moved into place once complete.
+ * If the connection drops half way and the server supports byte ranges, the transfer is resumed with a Range request.
+ * Assets larger than the configured cap are rejected, and the temporary file is always removed on failure,
+ * so a partial file is never left behind at the target path.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class StreamingAssetDownloader {
+
+    /**
+     * Default maximum size of a single asset, 512 MB.
+     */
+    public static final long DEFAULT_MAX_ASSET_SIZE = 512L * 1024 * 1024;
+
+    /**
+     * Default number of Range requests issued to resume an interrupted transfer.
+     */
+    public static final int DEFAULT_MAX_RESUME_ATTEMPTS = 3;
+
+    private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String PART_SUFFIX = ".part";
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)", Pattern.CASE_INSENSITIVE);
+
+    private long maxAssetSize = DEFAULT_MAX_ASSET_SIZE;
+    private int maxResumeAttempts = DEFAULT_MAX_RESUME_ATTEMPTS;
+
+    /**
+     * Sets the maximum number of bytes accepted for a single asset.
+     * @param maxAssetSize the size cap in bytes, must be positive.
+     */
+    public void setMaxAssetSize(long maxAssetSize) {
+        if (maxAssetSize <= 0) {
+            throw new IllegalArgumentException("maxAssetSize must be positive");
+        }
+        this.maxAssetSize = maxAssetSize;
+    }
+
+    public long getMaxAssetSize() {
+        return maxAssetSize;
+    }
+
+    /**
+     * Sets how many times an interrupted transfer is resumed with a Range request before giving up.
+     * @param maxResumeAttempts the number of resume attempts, 0 disables resuming.
+     */
+    public void setMaxResumeAttempts(int maxResumeAttempts) {
+        if (maxResumeAttempts < 0) {
+            throw new IllegalArgumentException("maxResumeAttempts cannot be negative");
+        }
+        this.maxResumeAttempts = maxResumeAttempts;
+    }
+
+    public int getMaxResumeAttempts() {
+        return maxResumeAttempts;
+    }
+
+    /**
+     * Opens a connection suitable for streaming a binary asset: no body size limit and no content encoding,
+     * so the Content-Length header matches the bytes on the wire and byte ranges can be resumed.
+     * @param url the asset URL.
+     * @return the executed response, with the body not yet read.
+     * @throws IOException if the request fails.
+     */
+    public Connection.Response open(URL url) throws IOException {
+        return Jsoup.connect(url.toExternalForm())
+                .ignoreContentType(true)
+                .maxBodySize(0)
+                .header("Accept-Encoding", "identity")
+                .execute();
+    }
+
+    /**
+     * Streams the body of an already executed response to the target path.
+     * The response should be created with an unlimited body size (see {@link #open(URL)}), the body must not be read yet.
+     * @param response the executed response of the asset request.
+     * @param url      the asset URL, used to issue Range requests when the transfer is interrupted.
+     * @param target   the final path of the asset, replaced atomically once the download completes.
+     * @return the number of bytes written.
+     * @throws IOException if the asset exceeds the size cap, or the download cannot be completed.
+     */
+    public long download(Connection.Response response, URL url, Path target) throws IOException {
+        Path partFile = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        boolean completed = false;
+        try {
+            long expectedLength = getContentLength(response);
+            if (expectedLength > maxAssetSize) {
+                throw new AssetSizeExceededException("Asset size " + expectedLength + " exceeds the maximum of " + maxAssetSize + " bytes: " + url);
+            }
+            boolean resumable = expectedLength >= 0 && isRangeCapable(response);
+            String validator = response.header("ETag") != null ? response.header("ETag") : response.header("Last-Modified");
+
+            long written;
+            try {
+                written = transfer(response, partFile, 0);
+            } catch (AssetSizeExceededException e) {
+                throw e;
+            } catch (IOException e) {
+                if (!resumable || maxResumeAttempts == 0) {
+                    throw e;
+                }
+                written = Files.exists(partFile) ? Files.size(partFile) : 0;
+            }
+
+            int attempt = 0;
+            while (resumable && written < expectedLength) {
+                if (attempt++ >= maxResumeAttempts) {
+                    throw new IOException("Transfer of " + url + " stopped at " + written + " of " + expectedLength + " bytes");
+                }
+                try {
+                    written = resume(url, partFile, written, expectedLength, validator);
+                } catch (AssetSizeExceededException e) {
+                    throw e;
+                } catch (IOException e) {
+                    written = Files.exists(partFile) ? Files.size(partFile) : 0;
+                }
+            }
+
+            if (expectedLength >= 0 && written != expectedLength) {
+                throw new IOException("Incomplete download of " + url + ": received " + written + " of " + expectedLength + " bytes");
+            }
+
+            moveIntoPlace(partFile, target);
+            completed = true;
+            return written;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(partFile);
+            }
+        }
+    }
+
+    /**
+     * Streams the body of an already executed response into an output stream, such as a zip entry, enforcing the size
+     * cap. Unlike {@link #download(Connection.Response, URL, Path)}, an interrupted transfer cannot be resumed, as the
+     * bytes already written cannot be taken back.
+     * @param response the executed response of the asset request, the body must not be read yet.
+     * @param url      the asset URL, for error messages.
+     * @param out      the destination, left open.
+     * @return the number of bytes written.
+     * @throws IOException if the asset exceeds the size cap, or the transfer fails or ends early.
+     */
+    public long copy(Connection.Response response, URL url, OutputStream out) throws IOException {
+        long expectedLength = getContentLength(response);
+        if (expectedLength > maxAssetSize) {
+            throw new AssetSizeExceededException("Asset size " + expectedLength + " exceeds the maximum of " + maxAssetSize + " bytes: " + url);
+        }
+        long written = 0;
+        try (InputStream in = response.bodyStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                written += read;
+                if (written > maxAssetSize) {
+                    throw new AssetSizeExceededException("Asset exceeds the maximum of " + maxAssetSize + " bytes: " + url);
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        if (expectedLength >= 0 && written != expectedLength) {
+            throw new IOException("Incomplete download of " + url + ": received " + written + " of " + expectedLength + " bytes");
+        }
+        return written;
+    }
+
+    /**
+     * Reads the body of an already executed response into memory, enforcing the size cap, for text assets such as CSS
+     * and JS that are parsed and rewritten.
+     * @param response the executed response of the asset request, the body must not be read yet.
+     * @param url      the asset URL, for error messages.
+     * @return the body.
+     * @throws IOException if the asset exceeds the size cap, or the transfer fails or ends early.
+     */
+    public byte[] readBody(Connection.Response response, URL url) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        copy(response, url, body);
+        return body.toByteArray();
+    }
+
+    /**
+     * Issues a Range request for the remaining bytes and appends them to the part file.
+     * Falls back to a full transfer if the server ignores the range or the validator no longer matches. Without a
+     * validator, or when the returned range does not continue the part file, the resource may have changed since the
+     * first bytes were written, so the download restarts from the first byte instead of splicing the two versions.
+     */
+    private long resume(URL url, Path partFile, long offset, long expectedLength, String validator) throws IOException {
+        if (validator == null) {
+            ColoredConsoleOutput.printYellowText("[StreamingAssetDownloader] Restarting download of " + url + ", it has no validator to resume at byte " + offset + "...");
+            return restart(url, partFile);
+        }
+        ColoredConsoleOutput.printYellowText("[StreamingAssetDownloader] Resuming download of " + url + " at byte " + offset + "...");
+        Connection.Response response = connect(url)
+                .header("Range", "bytes=" + offset + "-")
+                .header("If-Range", validator)
+                .execute();
+
+        if (response.statusCode() == 206) {
+            if (!continuesAt(response, offset, expectedLength)) {
+                ColoredConsoleOutput.printYellowText("[StreamingAssetDownloader] Unexpected range " + response.header("Content-Range") + " for " + url + ", restarting the download...");
+                return restart(url, partFile);
+            }
+            return transfer(response, partFile, offset);
+        } else if (response.statusCode() == 200) {
+            // The server sent the whole body again, start over from the first byte.
+            return transfer(response, partFile, 0);
+        }
+        throw new IOException("Unexpected HTTP status " + response.statusCode() + " while resuming " + url);
+    }
+
+    /**
+     * Downloads the whole body again into the part file.
+     */
+    private long restart(URL url, Path partFile) throws IOException {
+        Connection.Response response = connect(url).execute();
+        if (response.statusCode() != 200) {
+            throw new IOException("Unexpected HTTP status " + response.statusCode() + " while downloading " + url);
+        }
+        return transfer(response, partFile, 0);
+    }
+
+    private Connection connect(URL url) {
+        return Jsoup.connect(url.toExternalForm())
+                .ignoreContentType(true)
+                .ignoreHttpErrors(true)
+                .maxBodySize(0)
+                .header("Accept-Encoding", "identity");
+    }
+
+    /**
+     * Returns whether the Content-Range of a partial response, "bytes start-end/total", starts at the offset and
+     * belongs to a resource of the expected length.
+     */
+    private boolean continuesAt(Connection.Response response, long offset, long expectedLength) {
+        String contentRange = response.header("Content-Range");
+        if (contentRange == null) {
+            return false;
+        }
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+        if (!matcher.matches()) {
+            return false;
+        }
+        try {
+            if (Long.parseLong(matcher.group(1)) != offset) {
+                return false;
+            }
+            return matcher.group(3).equals("*") || Long.parseLong(matcher.group(3)) == expectedLength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Copies the response body into the file channel starting at the given offset,
+     * enforcing the size cap without ever buffering the body in memory.
+     */
+    private long transfer(Connection.Response response, Path partFile, long offset) throws IOException {
+        if (offset == 0) {
+            Files.deleteIfExists(partFile);
+        }
+        try (InputStream in = response.bodyStream();
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel destination = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            long position = offset;
+            while (true) {
+                // Ask for one byte beyond the cap, so an oversized body is detected without writing much more.
+                long count = Math.min(TRANSFER_CHUNK_SIZE, maxAssetSize - position + 1);
+                long transferred = destination.transferFrom(source, position, count);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                if (position > maxAssetSize) {
+                    throw new AssetSizeExceededException("Asset exceeds the maximum of " + maxAssetSize + " bytes");
+                }
+            }
+            return position;
+        }
+    }
+
+    private void moveIntoPlace(Path partFile, Path target) throws IOException {
+        try {
+            Files.move(partFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns the Content-Length of the body, or -1 if it is unknown or does not describe the decoded body.
+     */
+    private long getContentLength(Connection.Response response) {
+        String encoding = response.header("Content-Encoding");
+        if (encoding != null && !encoding.equalsIgnoreCase("identity")) {
+            return -1;
+        }
+        String length = response.header("Content-Length");
+        if (length == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(length.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean isRangeCapable(Connection.Response response) {
+        String acceptRanges = response.header("Accept-Ranges");
+        return acceptRanges != null && acceptRanges.toLowerCase().contains("bytes");
+    }
+
+    /**
+     * Raised when an asset is larger than the configured cap, never retried.
+     */
+    private static final class AssetSizeExceededException extends IOException {
+        AssetSizeExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.eazeeditor.searchengineapi.website;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Random access reader for archives written by {@link WarcWriter}.
+ * The CDX index is loaded once, then each lookup seeks straight to the gzip member of the record,
+ * so reading a single URL costs one seek and the decompression of that record only.
+ * When a URL was captured more than once, the latest capture is returned.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class WarcReader implements Closeable {
+
+    private final FileChannel channel;
+    private final Map<String, long[]> index = new LinkedHashMap<>();
+
+    /**
+     * Opens an archive and loads its CDX index (archive path + {@link WarcWriter#CDX_SUFFIX}).
+     * @param warcFile path of the archive.
+     * @throws IOException if the archive or its index cannot be read.
+     */
+    public WarcReader(Path warcFile) throws IOException {
+        Path cdxFile = Paths.get(warcFile + WarcWriter.CDX_SUFFIX);
+        try (BufferedReader reader = Files.newBufferedReader(cdxFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(" CDX") || line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split(" ");
+                if (fields.length < 8) {
+                    continue;
+                }
+                // a b m s k S V g: the compressed length and offset are the 6th and 7th fields
+                index.put(fields[0], new long[]{Long.parseLong(fields[6]), Long.parseLong(fields[5])});
+            }
+        }
+        this.channel = FileChannel.open(warcFile, StandardOpenOption.READ);
+    }
+
+    /**
+     * @return the URLs captured in the archive, in capture order.
+     */
+    public Set<String> getUrls() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    public boolean contains(String url) {
+        return index.containsKey(url.replace(" ", "%20"));
+    }
+
+    /**
+     * Reads the latest capture of a URL.
+     * @param url the captured URL.
+     * @return the record, or null if the URL is not in the archive.
+     * @throws IOException if the record cannot be read.
+     */
+    public synchronized WarcRecord read(String url) throws IOException {
+        long[] location = index.get(url.replace(" ", "%20"));
+        if (location == null) {
+            return null;
+        }
+        channel.position(location[0]);
+        InputStream member = new GZIPInputStream(new BoundedInputStream(Channels.newInputStream(channel), location[1]), 64 * 1024);
+
+        Map<String, String> warcHeaders = readHeaders(member);
+        String type = warcHeaders.get("WARC-Type");
+        long contentLength = Long.parseLong(warcHeaders.getOrDefault("Content-Length", "0"));
+        InputStream block = new BoundedInputStream(member, contentLength);
+
+        if (!"response".equals(type)) {
+            return new WarcRecord(type, warcHeaders, 200, Collections.emptyMap(), block.readAllBytes());
+        }
+
+        String statusLine = readLine(block);
+        String[] status = statusLine.split(" ", 3);
+        int statusCode = status.length > 1 ? Integer.parseInt(status[1]) : 0;
+        Map<String, String> httpHeaders = readHeaders(block);
+        return new WarcRecord(type, warcHeaders, statusCode, httpHeaders, block.readAllBytes());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Reads a CRLF terminated header line without buffering past it, so the payload that follows is left untouched.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A single archived record.
+     */
+    public static class WarcRecord {
+        private final String type;
+        private final Map<String, String> warcHeaders;
+        private final int statusCode;
+        private final Map<String, String> httpHeaders;
+        private final byte[] payload;
+
+        WarcRecord(String type, Map<String, String> warcHeaders, int statusCode, Map<String, String> httpHeaders, byte[] payload) {
+            this.type = type;
+            this.warcHeaders = warcHeaders;
+            this.statusCode = statusCode;
+            this.httpHeaders = httpHeaders;
+            this.payload = payload;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Map<String, String> getWarcHeaders() {
+            return warcHeaders;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public Map<String, String> getHttpHeaders() {
+            return httpHeaders;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+
+    /**
+     * Limits a stream to a fixed number of bytes, used to stay within one gzip member and one record block.
+     */
+    private static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.eazeeditor.searchengineapi.website;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only writer for WARC 1.1 archives, where every record is stored as its own gzip member.
+ * Records are streamed straight to the archive file, and each response or resource record is also added to a CDX index
+ * next to the archive (archive path + ".cdx"), holding the offset and compressed length of the record,
+ * so {@link WarcReader} can later seek directly to a URL without scanning the archive.
+ * <p>
+ * CDX lines use the fields {@code a b m s k S V g}: original URL, timestamp, mime type, status code,
+ * payload digest, compressed record length, record offset and archive file name.
+ * @author nurujjamanpollob
+ * @version 1.0
+ */
+public class WarcWriter implements Closeable {
+
+    /**
+     * Suffix of the CDX index file written next to the archive.
+     */
+    public static final String CDX_SUFFIX = ".cdx";
+
+    private static final String CRLF = "\r\n";
+    private static final DateTimeFormatter CDX_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    private final Path warcFile;
+    private final FileChannel channel;
+    private final OutputStream channelStream;
+    private final BufferedWriter cdxWriter;
+
+    /**
+     * Opens the archive for appending, creating it together with a warcinfo record if it does not exist yet.
+     * @param warcFile path of the archive, conventionally ending with ".warc.gz".
+     * @throws IOException if the archive or its index cannot be opened.
+     */
+    public WarcWriter(Path warcFile) throws IOException {
+        this.warcFile = warcFile;
+        Path parent = warcFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path cdxFile = Paths.get(warcFile + CDX_SUFFIX);
+        boolean newArchive = !Files.exists(warcFile) || Files.size(warcFile) == 0;
+
+        this.channel = FileChannel.open(warcFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.channelStream = Channels.newOutputStream(channel);
+        boolean newIndex = !Files.exists(cdxFile) || Files.size(cdxFile) == 0;
+        this.cdxWriter = Files.newBufferedWriter(cdxFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (newIndex) {
+            cdxWriter.write(" CDX a b m s k S V g");
+            cdxWriter.newLine();
+        }
+        if (newArchive) {
+            writeWarcInfo();
+        }
+    }
+
+    public Path getWarcFile() {
+        return warcFile;
+    }
+
+    /**
+     * Writes a request record for a GET request.
+     * @param targetUri the requested URL.
+     * @param headers   the request headers sent with the request.
+     * @return the record ID, to be referenced from the matching response with WARC-Concurrent-To.
+     * @throws IOException if the record cannot be written.
+     */
+    public synchronized String writeRequest(String targetUri, Map<String, String> headers) throws IOException {
+        URI uri = URI.create(targetUri);
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            path += "?" + uri.getRawQuery();
+        }
+        StringBuilder http = new StringBuilder("GET ").append(path).append(" HTTP/1.1").append(CRLF);
+        http.append("Host: ").append(uri.getHost()).append(CRLF);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            http.append(header.getKey()).append(": ").append(header.getValue()).append(CRLF);
+        }
+        http.append(CRLF);
+
+        String recordId = newRecordId();
+        byte[] block = http.toString().getBytes(StandardCharsets.ISO_8859_1);
+        writeRecord("request", recordId, targetUri, "application/http;msgtype=request", null, null, block, null, block.length);
+        return recordId;
+    }
+
+    /**
+     * Writes a response record whose payload is held in memory, typically a CSS or JS body.
+     * @param targetUri   the URL of the resource.
+     * @param concurrentTo the ID of the matching request record, may be null.
+     * @param status      the HTTP status code.
+     * @param message     the HTTP status message.
+     * @param headers     the HTTP response headers.
+     * @param mimeType    the payload mime type, used in the CDX index.
+     * @param payload     the decoded response body.
+     * @throws IOException if the record cannot be written.
+     */
+    public synchronized void writeResponse(String targetUri, String concurrentTo, int status, String message,
+                                           Map<String, List<String>> headers, String mimeType, byte[] payload) throws IOException {
+        byte[] httpHeader = buildResponseHeader(status, message, headers, payload.length);
+        String digest = payloadDigest(payload);
+        long offset = writeRecord("response", newRecordId(), targetUri, "application/http;msgtype=response", concurrentTo, digest,
+                httpHeader, new ByteArrayInputStream(payload), httpHeader.length + (long) payload.length);
+        index(targetUri, mimeType, status, digest, offset);
+    }
+
+    /**
+     * Writes a response record whose payload is streamed from a file, so large bodies never need to fit in memory.
+     * @param payloadFile file holding the decoded response body.
+     * @see #writeResponse(String, String, int, String, Map, String, byte[])
+     */
+    public synchronized void writeResponse(String targetUri, String concurrentTo, int status, String message,
+                                           Map<String, List<String>> headers, String mimeType, Path payloadFile) throws IOException {
+        long payloadLength = Files.size(payloadFile);
+        byte[] httpHeader = buildResponseHeader(status, message, headers, payloadLength);
+        String digest;
+        try (InputStream in = Files.newInputStream(payloadFile)) {
+            digest = payloadDigest(in);
+        }
+        long offset;
+        try (InputStream in = Files.newInputStream(payloadFile)) {
+            offset = writeRecord("response", newRecordId(), targetUri, "application/http;msgtype=response", concurrentTo, digest,
+                    httpHeader, in, httpHeader.length + payloadLength);
+        }
+        index(targetUri, mimeType, status, digest, offset);
+    }
+
+    /**
+     * Writes a resource record, used for content that was not fetched over plain HTTP, such as the DOM rendered by the browser.
+     * @param targetUri the URL the content belongs to.
+     * @param mimeType  the content mime type.
+     * @param content   the content bytes.
+     * @throws IOException if the record cannot be written.
+     */
+    public synchronized void writeResource(String targetUri, String mimeType, byte[] content) throws IOException {
+        String digest = payloadDigest(content);
+        long offset = writeRecord("resource", newRecordId(), targetUri, mimeType, null, digest, content, null, content.length);
+        index(targetUri, mimeType, 200, digest, offset);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            cdxWriter.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeWarcInfo() throws IOException {
+        String info = "software: EazeEditor WebsiteDownloadService" + CRLF
+                + "format: WARC File Format 1.1" + CRLF;
+        byte[] block = info.getBytes(StandardCharsets.UTF_8);
+        writeRecord("warcinfo", newRecordId(), null, "application/warc-fields", null, null, block, null, block.length);
+    }
+
+    /**
+     * Writes one record as a separate gzip member and returns its offset in the archive.
+     */
+    private long writeRecord(String type, String recordId, String targetUri, String contentType, String concurrentTo,
+                             String payloadDigest, byte[] head, InputStream body, long contentLength) throws IOException {
+        StringBuilder header = new StringBuilder("WARC/1.1").append(CRLF);
+        header.append("WARC-Type: ").append(type).append(CRLF);
+        header.append("WARC-Record-ID: ").append(recordId).append(CRLF);
+        header.append("WARC-Date: ").append(Instant.now().truncatedTo(ChronoUnit.SECONDS)).append(CRLF);
+        if (targetUri != null) {
+            header.append("WARC-Target-URI: ").append(targetUri).append(CRLF);
+        }
+        if (concurrentTo != null) {
+            header.append("WARC-Concurrent-To: ").append(concurrentTo).append(CRLF);
+        }
+        if ("warcinfo".equals(type)) {
+            header.append("WARC-Filename: ").append(warcFile.getFileName()).append(CRLF);
+        }
+        if (payloadDigest != null) {
+            header.append("WARC-Payload-Digest: ").append(payloadDigest).append(CRLF);
+        }
+        header.append("Content-Type: ").append(contentType).append(CRLF);
+        header.append("Content-Length: ").append(contentLength).append(CRLF);
+        header.append(CRLF);
+
+        long offset = channel.position();
+        GZIPOutputStream gzip = new GZIPOutputStream(new NonClosingOutputStream(channelStream), 64 * 1024);
+        gzip.write(header.toString().getBytes(StandardCharsets.UTF_8));
+        gzip.write(head);
+        if (body != null) {
+            body.transferTo(gzip);
+        }
+        gzip.write((CRLF + CRLF).getBytes(StandardCharsets.US_ASCII));
+        gzip.finish();
+        gzip.flush();
+        return offset;
+    }
+
+    private void index(String targetUri, String mimeType, int status, String digest, long offset) throws IOException {
+        long length = channel.position() - offset;
+        String mime = mimeType == null || mimeType.isEmpty() ? "-" : mimeType.split(";")[0].trim();
+        cdxWriter.write(String.join(" ",
+                targetUri.replace(" ", "%20"),
+                CDX_TIMESTAMP.format(Instant.now()),
+                mime,
+                String.valueOf(status),
+                digest == null ? "-" : digest.substring(digest.indexOf(':') + 1),
+                String.valueOf(length),
+                String.valueOf(offset),
+                warcFile.getFileName().toString()));
+        cdxWriter.newLine();
+        cdxWriter.flush();
+    }
+
+    /**
+     * Builds the HTTP status line and headers of a response block. The payload is stored decoded,
+     * so transfer and content encodings are dropped and Content-Length is set to the stored length.
+     */
+    private byte[] buildResponseHeader(int status, String message, Map<String, List<String>> headers, long payloadLength) {
+        StringBuilder http = new StringBuilder("HTTP/1.1 ").append(status);
+        if (message != null && !message.isEmpty()) {
+            http.append(' ').append(message);
+        }
+        http.append(CRLF);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            String name = header.getKey();
+            if (name == null || name.equalsIgnoreCase("Content-Encoding") || name.equalsIgnoreCase("Transfer-Encoding")
+                    || name.equalsIgnoreCase("Content-Length")) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                http.append(name).append(": ").append(value).append(CRLF);
+            }
+        }
+        http.append("Content-Length: ").append(payloadLength).append(CRLF);
+        http.append(CRLF);
+        return http.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String newRecordId() {
+        return "<urn:uuid:" + UUID.randomUUID() + ">";
+    }
+
+    private static String payloadDigest(byte[] payload) throws IOException {
+        return payloadDigest(new ByteArrayInputStream(payload));
+    }
+
+    private static String payloadDigest(InputStream in) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 is not available in the security provider", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            md.update(buffer, 0, read);
+        }
+        return "sha1:" + base32(md.digest());
+    }
+
+    /**
+     * RFC 4648 base32, as used by WARC payload digests and CDX indexes.
+     */
+    private static String base32(byte[] data) {
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+        StringBuilder sb = new StringBuilder();
+        int buffer = 0;
+        int bits = 0;
+        for (byte b : data) {
+            buffer = (buffer << 8) | (b & 0xff);
+            bits += 8;
+            while (bits >= 5) {
+                sb.append(alphabet.charAt((buffer >> (bits - 5)) & 31));
+                bits -= 5;
+            }
+        }
+        if (bits > 0) {
+            sb.append(alphabet.charAt((buffer << (5 - bits)) & 31));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Keeps the archive channel open when a record's gzip stream is finished.
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -1,28 +1,33 @@
 package com.eazeeditor.searchengineapi.website;
 
+import com.eazeeditor.searchengineapi.browser.BlockProfile;
+import com.eazeeditor.searchengineapi.browser.BrowserManager;
+import com.eazeeditor.searchengineapi.browser.BrowserPool;
+import com.eazeeditor.searchengineapi.browser.BrowserProfile;
+import com.eazeeditor.searchengineapi.browser.RequestInterceptor;
 import com.google.api.services.customsearch.v1.model.Result;
 import com.google.api.services.customsearch.v1.model.Search;
+import javadev.stringcollections.textreplacor.io.FileHashDriver;
 import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,39 +42,148 @@ import java.util.regex.Pattern;
  */
 public class WebsiteDownloadService {
 
-    private final String chromeBinary;
+    private final BrowserManager browserManager;
+    private final boolean pooled;
+    private final StreamingAssetDownloader assetDownloader = new StreamingAssetDownloader();
+    private String warcOutputPath;
+    private ContentAddressedStore contentStore;
+    private String zipOutputPath;
+    private boolean incremental;
+    private BlockProfile blockProfile = BlockProfile.NONE;
+    private volatile DownloadStats downloadStats = new DownloadStats();
 
     public WebsiteDownloadService() throws IllegalStateException {
         String chromeBinaryPath = System.getenv("CHROME_BINARY_PATH");
         if (chromeBinaryPath == null || chromeBinaryPath.isEmpty()) {
             throw new IllegalStateException("CHROME_BINARY_PATH environment variable is not set. use export CHROME_BINARY_PATH=/path/to/chrome or initialize this class with WebsiteDownloadService(String chromeBinaryPath)");
         }
-        this.chromeBinary = chromeBinaryPath;
+        this.browserManager = new BrowserManager(chromeBinaryPath);
+        this.pooled = false;
     }
 
     public WebsiteDownloadService(String chromeBinaryPath) {
         if (chromeBinaryPath == null || chromeBinaryPath.isEmpty() || !new File(chromeBinaryPath).exists()) {
             throw new IllegalArgumentException("chromeBinaryPath cannot be null, empty, or invalid");
         }
-        this.chromeBinary = chromeBinaryPath;
+        this.browserManager = new BrowserManager(chromeBinaryPath);
+        this.pooled = false;
+    }
+
+    /**
+     * Renders pages in warm browsers of a shared {@link BrowserManager}, whose lifecycle stays with the caller.
+     * @param browserManager the browser fleet, shared with other services.
+     */
+    public WebsiteDownloadService(BrowserManager browserManager) {
+        if (browserManager == null) {
+            throw new IllegalArgumentException("browserManager cannot be null");
+        }
+        this.browserManager = browserManager;
+        this.pooled = true;
+    }
+
+    /**
+     * Sets the maximum size of a single downloaded asset. Larger assets are skipped instead of being truncated.
+     * @param maxAssetSize the size cap in bytes, defaults to {@link StreamingAssetDownloader#DEFAULT_MAX_ASSET_SIZE}.
+     */
+    public void setMaxAssetSize(long maxAssetSize) {
+        assetDownloader.setMaxAssetSize(maxAssetSize);
+    }
+
+    /**
+     * Sets how many times an interrupted asset download is resumed with a Range request.
+     * @param maxResumeAttempts the number of resume attempts, 0 disables resuming.
+     */
+    public void setMaxResumeAttempts(int maxResumeAttempts) {
+        assetDownloader.setMaxResumeAttempts(maxResumeAttempts);
+    }
+
+    /**
+     * Archives each crawl into a single WARC file instead of a directory tree of rewritten files.
+     * Every fetched asset is appended as a gzip compressed request/response record with the original bytes,
+     * the rendered page is stored as a resource record, and a CDX index is kept next to the archive for {@link WarcReader}.
+     * @param warcFilePath path of the archive, conventionally ending with ".warc.gz", or null to write a directory tree again.
+     */
+    public void setWarcOutput(String warcFilePath) {
+        this.warcOutputPath = warcFilePath;
+    }
+
+    /**
+     * Stores downloaded assets in a content-addressed blob store, which can be shared by many service instances and sites.
+     * Assets already present in the store, such as common CDN libraries and fonts, are not written again,
+     * the site tree only references them with a hard link or through the store manifest.
+     * @param contentStore the blob store, or null to write plain files again.
+     */
+    public void setContentStore(ContentAddressedStore contentStore) {
+        this.contentStore = contentStore;
+    }
+
+    /**
+     * Packages each download straight into a zip archive as the assets arrive, instead of writing a directory tree.
+     * Already compressed assets are stored as is and text assets are deflated. Ignored when archiving to WARC,
+     * and the content store and incremental mode do not apply to zip output.
+     * @param zipFilePath path of the archive to create, or null to write a directory tree again.
+     */
+    public void setZipOutput(String zipFilePath) {
+        this.zipOutputPath = zipFilePath;
+    }
+
+    /**
+     * Enables incremental re-downloads. A {@link DownloadManifest} kept in the site tree records the validators and
+     * content hash of every fetched resource, the next run revalidates them with conditional requests,
+     * keeps the unchanged ones and only rewrites the HTML, CSS and JS files whose content changed.
+     * Ignored when archiving to WARC.
+     * @param incremental true to revalidate a previously mirrored site instead of downloading it again.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Sets the requests the browser blocks while rendering the page. Assets are downloaded separately from the
+     * rendered HTML, so {@link BlockProfile#PAGE_SOURCE} skips them in the browser without changing the result.
+     * @param blockProfile the requests to block.
+     */
+    public void setBlockProfile(BlockProfile blockProfile) {
+        this.blockProfile = blockProfile != null ? blockProfile : BlockProfile.NONE;
+    }
+
+    /**
+     * @return transfer statistics of the last download, including the bytes saved by incremental mode.
+     */
+    public DownloadStats getLastDownloadStats() {
+        return downloadStats;
     }
 
     public void downloadEntireWebsite(String url, String localPath) {
-        WebDriver driver = null;
+        BrowserPool.Lease browser = null;
+        // Writers and statistics are per download, so concurrent downloads on one service never share them
+        DownloadSession session = new DownloadSession(localPath);
+        downloadStats = session.stats;
         try {
             Path localDirPath = Paths.get(localPath);
             Files.createDirectories(localDirPath);
             URL baseUrl = new URL(url);
+            if (warcOutputPath != null) {
+                session.warcWriter = new WarcWriter(Paths.get(warcOutputPath));
+            } else if (zipOutputPath != null) {
+                session.zipWriter = new SiteZipWriter(Paths.get(zipOutputPath));
+            } else if (incremental) {
+                session.manifest = DownloadManifest.load(localDirPath);
+            }
 
-            ChromeOptions options = new ChromeOptions();
-            options.setBinary(this.chromeBinary);
-            options.addArguments("--headless", "--disable-gpu", "--window-size=1920,1080");
-
-            driver = new ChromeDriver(options);
+            browser = pooled ? browserManager.acquire(BrowserProfile.DOWNLOAD) : browserManager.launch(BrowserProfile.DOWNLOAD);
+            WebDriver driver = browser.getDriver();
+            RequestInterceptor interceptor = null;
+            if (!blockProfile.isEmpty()) {
+                interceptor = RequestInterceptor.attach(browser.getDevTools(), blockProfile);
+            }
             driver.get(url);
 
             // Optional: wait for dynamic content to load
             Thread.sleep(5000);
+            if (interceptor != null) {
+                System.out.println(interceptor.collectStats(browser.getDriver(), url));
+            }
 
             String pageSource = driver.getPageSource();
 
@@ -78,6 +192,9 @@ public class WebsiteDownloadService {
                 return;
             }
             Document doc = Jsoup.parse(pageSource, url);
+            if (session.warcWriter != null) {
+                session.warcWriter.writeResource(url, "text/html", pageSource.getBytes(StandardCharsets.UTF_8));
+            }
 
             // Select all elements with href or src attributes
             Elements elements = doc.select("[href], [src]");
@@ -87,7 +204,7 @@ public class WebsiteDownloadService {
                 String originalUrl = element.attr(attr);
 
                 if (shouldDownload(element.tagName(), attr, originalUrl)) {
-                    String localAssetPath = downloadResource(baseUrl, originalUrl, localPath);
+                    String localAssetPath = downloadResource(baseUrl, originalUrl, session);
                     if (localAssetPath != null) {
                         // Adjust path for HTML by removing potential leading slashes for correct relative linking
                         String relativePathForHtml = localAssetPath.startsWith("/") ? localAssetPath.substring(1) : localAssetPath;
@@ -96,21 +213,60 @@ public class WebsiteDownloadService {
                 }
             }
 
+            if (session.warcWriter != null) {
+                System.out.println("Website archived successfully to " + warcOutputPath);
+                return;
+            }
+
             // Save the modified HTML file
             String fileName = getFileNameFromUrl(baseUrl);
             if (!fileName.contains(".htm")) {
                 fileName = "index.html";
             }
+            byte[] html = doc.outerHtml().getBytes();
+            if (session.zipWriter != null) {
+                session.zipWriter.putBytes(fileName, html);
+                // Fails, and deletes the archive, if any entry failed
+                session.zipWriter.close();
+                System.out.println("Website packaged successfully to " + zipOutputPath);
+                System.out.println(session.stats);
+                return;
+            }
             Path htmlPath = localDirPath.resolve(fileName);
-            Files.write(htmlPath, doc.outerHtml().getBytes());
+            // The page is rendered again on every run, only rewrite it when it changed
+            if (session.manifest == null || !Files.exists(htmlPath) || !Arrays.equals(Files.readAllBytes(htmlPath), html)) {
+                Files.write(htmlPath, html);
+            }
 
             System.out.println("Website downloaded successfully to " + localPath);
+            System.out.println(session.stats);
 
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
         } finally {
-            if (driver != null) {
-                driver.quit();
+            if (browser != null) {
+                browser.close();
+            }
+            if (session.warcWriter != null) {
+                try {
+                    session.warcWriter.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close WARC archive " + warcOutputPath + " - " + e.getMessage());
+                }
+            }
+            if (session.zipWriter != null) {
+                try {
+                    session.zipWriter.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close zip archive " + zipOutputPath + " - " + e.getMessage());
+                }
+            }
+            if (session.manifest != null) {
+                try {
+                    session.manifest.save();
+                } catch (IOException e) {
+                    System.err.println("Failed to save download manifest for " + localPath + " - " + e.getMessage());
+                }
             }
         }
     }
@@ -125,7 +281,7 @@ public class WebsiteDownloadService {
                 (tagName.equals("img") && attr.equals("src"));
     }
 
-    private String downloadResource(URL baseUrl, String resourceUrl, String localBasePath) {
+    private String downloadResource(URL baseUrl, String resourceUrl, DownloadSession session) {
         try {
             URL absoluteUrl = new URL(baseUrl, resourceUrl);
             String host = absoluteUrl.getHost();
@@ -139,25 +295,78 @@ public class WebsiteDownloadService {
             }
 
             String relativePath = Paths.get(host, path.startsWith("/") ? path.substring(1) : path).toString();
-            Path localFilePath = Paths.get(localBasePath, relativePath);
+            Path localFilePath = Paths.get(session.localBasePath, relativePath);
+
+            if (session.zipWriter != null && session.zipWriter.contains(relativePath.replace('\\', '/'))) {
+                // Already packaged, an entry can only be written once
+                return relativePath.replace('\\', '/');
+            }
+            if (session.warcWriter == null && session.zipWriter == null && contentStore == null) {
+                Files.createDirectories(localFilePath.getParent());
+            }
 
-            Files.createDirectories(localFilePath.getParent());
+            String targetUrl = absoluteUrl.toExternalForm();
+            DownloadManifest.Entry previous = session.manifest != null ? session.manifest.get(targetUrl) : null;
+            if (previous != null && contentStore == null && !Files.exists(localFilePath)) {
+                // The local copy is gone, fetch it again
+                previous = null;
+            }
 
-            Connection.Response response = Jsoup.connect(absoluteUrl.toExternalForm()).ignoreContentType(true).execute();
+            // Unlimited body size, bodies are read through the asset downloader, which caps them instead of silently truncating
+            Connection connection = Jsoup.connect(targetUrl).ignoreContentType(true).maxBodySize(0).header("Accept", "*/*");
+            if (previous != null) {
+                // Revalidate the previous copy, the server answers 304 when it did not change
+                if (previous.getEtag() != null) {
+                    connection.header("If-None-Match", previous.getEtag());
+                }
+                if (previous.getLastModified() != null) {
+                    connection.header("If-Modified-Since", previous.getLastModified());
+                }
+                connection.ignoreHttpErrors(true);
+            }
+            Connection.Response response = connection.execute();
+            if (previous != null) {
+                if (response.statusCode() == 304) {
+                    return reuseResource(absoluteUrl, previous, session);
+                }
+                if (response.statusCode() >= 400) {
+                    throw new IOException("HTTP error fetching URL. Status=" + response.statusCode());
+                }
+            }
             String contentType = response.contentType();
 
             // Check if the resource is a CSS file to parse its contents for more resources
-            if (contentType != null && contentType.contains("text/css")) {
-                String cssContent = response.body();
-                String modifiedCss = parseAndDownloadCssResources(cssContent, absoluteUrl, localBasePath);
-                Files.write(localFilePath, modifiedCss.getBytes(StandardCharsets.UTF_8));
+            if (session.warcWriter != null) {
+                archiveResource(absoluteUrl, connection.request().headers(), response, session);
+            } else if (contentType != null && contentType.contains("text/css")) {
+                saveTextResource(absoluteUrl, response, previous, localFilePath, session, relativePath, true);
             } else if (contentType != null && (contentType.contains("javascript") || contentType.contains("ecmascript"))) {
-                String jsContent = response.body();
-                String modifiedJs = parseAndDownloadJsResources(jsContent, absoluteUrl, localBasePath);
-                Files.write(localFilePath, modifiedJs.getBytes(StandardCharsets.UTF_8));
+                saveTextResource(absoluteUrl, response, previous, localFilePath, session, relativePath, false);
+            } else if (session.zipWriter != null) {
+                // Downloaded completely first, with the size cap and resume, so a failed download never reaches the archive
+                Path downloaded = Files.createTempFile("zip-asset", ".tmp");
+                try {
+                    session.stats.recordFetched(assetDownloader.download(response, absoluteUrl, downloaded));
+                    session.zipWriter.putFile(relativePath.replace('\\', '/'), downloaded);
+                } finally {
+                    Files.deleteIfExists(downloaded);
+                }
+            } else if (contentStore != null) {
+                Path downloaded = contentStore.createTempFile();
+                try {
+                    long size = assetDownloader.download(response, absoluteUrl, downloaded);
+                    Path blob = contentStore.putFile(downloaded, Paths.get(session.localBasePath), relativePath);
+                    session.stats.recordFetched(size);
+                    // Blobs are named after the SHA-256 of their content
+                    recordInManifest(session, targetUrl, relativePath, response, blob.getFileName().toString(), size, new ArrayList<>());
+                } finally {
+                    Files.deleteIfExists(downloaded);
+                }
             } else {
-                try (InputStream in = response.bodyStream()) {
-                    Files.copy(in, localFilePath, StandardCopyOption.REPLACE_EXISTING);
+                long size = assetDownloader.download(response, absoluteUrl, localFilePath);
+                session.stats.recordFetched(size);
+                if (session.manifest != null) {
+                    recordInManifest(session, targetUrl, relativePath, response, FileHashDriver.generateSHA256(localFilePath.toString()), size, new ArrayList<>());
                 }
             }
 
@@ -171,7 +380,113 @@ public class WebsiteDownloadService {
         }
     }
 
-    private String parseAndDownloadJsResources(String jsContent, URL jsBaseUrl, String localBasePath) {
+    /**
+     * Saves a CSS or JS file after rewriting the asset references it contains.
+     * If the body is identical to the previous download, the rewritten file on disk is still valid,
+     * so only its recorded dependencies are revalidated.
+     */
+    private void saveTextResource(URL absoluteUrl, Connection.Response response, DownloadManifest.Entry previous, Path localFilePath,
+                                  DownloadSession session, String relativePath, boolean css) throws IOException {
+        byte[] original = assetDownloader.readBody(response, absoluteUrl);
+        String sha256 = FileHashDriver.generateSHA256(original);
+        session.stats.recordFetched(original.length);
+
+        List<String> dependencies = new ArrayList<>();
+        if (previous != null && sha256 != null && sha256.equals(previous.getSha256())) {
+            for (String dependency : previous.getDependencies()) {
+                downloadResource(absoluteUrl, dependency, session);
+            }
+            dependencies = previous.getDependencies();
+        } else {
+            String content = decode(original, response);
+            String modified = css
+                    ? parseAndDownloadCssResources(content, absoluteUrl, session, dependencies)
+                    : parseAndDownloadJsResources(content, absoluteUrl, session, dependencies);
+            writeAsset(localFilePath, session, relativePath, modified.getBytes(StandardCharsets.UTF_8));
+        }
+        recordInManifest(session, absoluteUrl.toExternalForm(), relativePath, response, sha256, original.length, dependencies);
+    }
+
+    /**
+     * Keeps the copy of a resource the server reported as not modified, and revalidates the resources it references.
+     */
+    private String reuseResource(URL absoluteUrl, DownloadManifest.Entry previous, DownloadSession session) {
+        session.stats.recordNotModified(previous.getSize());
+        for (String dependency : previous.getDependencies()) {
+            downloadResource(absoluteUrl, dependency, session);
+        }
+        return previous.getRelativePath();
+    }
+
+    /**
+     * Decodes a text body in the charset of its response, UTF-8 if none is declared, like {@link Connection.Response#body()}.
+     */
+    private static String decode(byte[] body, Connection.Response response) {
+        Charset charset = StandardCharsets.UTF_8;
+        if (response.charset() != null) {
+            try {
+                charset = Charset.forName(response.charset());
+            } catch (IllegalArgumentException e) {
+                // Unknown charset, keep UTF-8
+            }
+        }
+        return new String(body, charset);
+    }
+
+    private void recordInManifest(DownloadSession session, String url, String relativePath, Connection.Response response, String sha256, long size, List<String> dependencies) {
+        if (session.manifest == null) {
+            return;
+        }
+        DownloadManifest.Entry entry = new DownloadManifest.Entry(relativePath.replace('\\', '/'), response.contentType(),
+                response.header("ETag"), response.header("Last-Modified"), sha256, size);
+        entry.setDependencies(dependencies);
+        session.manifest.put(url, entry);
+    }
+
+    private void writeAsset(Path localFilePath, DownloadSession session, String relativePath, byte[] content) throws IOException {
+        if (session.zipWriter != null) {
+            session.zipWriter.putBytes(relativePath.replace('\\', '/'), content);
+        } else if (contentStore != null) {
+            contentStore.putBytes(content, Paths.get(session.localBasePath), relativePath);
+        } else {
+            Files.write(localFilePath, content);
+        }
+    }
+
+    /**
+     * Records the original response in the WARC archive. CSS and JS bodies are still parsed so the assets they reference
+     * are archived too, but the rewritten content is discarded, as the archive keeps the original bytes.
+     */
+    private void archiveResource(URL absoluteUrl, Map<String, String> requestHeaders, Connection.Response response,
+                                 DownloadSession session) throws IOException {
+        String targetUri = absoluteUrl.toExternalForm();
+        String contentType = response.contentType();
+        // The headers actually sent: User-Agent, Accept, Accept-Encoding and the conditional headers of a revalidation
+        String requestId = session.warcWriter.writeRequest(targetUri, requestHeaders);
+
+        if (contentType != null && (contentType.contains("text/css") || contentType.contains("javascript") || contentType.contains("ecmascript"))) {
+            byte[] body = assetDownloader.readBody(response, absoluteUrl);
+            session.warcWriter.writeResponse(targetUri, requestId, response.statusCode(), response.statusMessage(),
+                    response.multiHeaders(), contentType, body);
+            if (contentType.contains("text/css")) {
+                parseAndDownloadCssResources(decode(body, response), absoluteUrl, session, new ArrayList<>());
+            } else {
+                parseAndDownloadJsResources(decode(body, response), absoluteUrl, session, new ArrayList<>());
+            }
+        } else {
+            // Spool the body to a temporary file, the record length must be known before the record is written
+            Path payloadFile = Files.createTempFile("warc-payload", ".tmp");
+            try {
+                assetDownloader.download(response, absoluteUrl, payloadFile);
+                session.warcWriter.writeResponse(targetUri, requestId, response.statusCode(), response.statusMessage(),
+                        response.multiHeaders(), contentType, payloadFile);
+            } finally {
+                Files.deleteIfExists(payloadFile);
+            }
+        }
+    }
+
+    private String parseAndDownloadJsResources(String jsContent, URL jsBaseUrl, DownloadSession session, List<String> dependencies) {
         // This regex is a simple heuristic to find asset paths in string literals.
         // It may not catch dynamically generated paths.
         Pattern pattern = Pattern.compile("(['\"])([^'\"]*?\\.(?:png|jpe?g|gif|svg|webp|woff2?|ttf|eot))\\1");
@@ -185,10 +500,11 @@ public class WebsiteDownloadService {
             }
 
             try {
-                String newRelativePath = downloadResource(jsBaseUrl, originalUrl, localBasePath);
+                String newRelativePath = downloadResource(jsBaseUrl, originalUrl, session);
                 if (newRelativePath != null) {
-                    Path jsSavedPath = Paths.get(localBasePath, jsBaseUrl.getHost(), jsBaseUrl.getPath().substring(1));
-                    Path resourceSavedPath = Paths.get(localBasePath, newRelativePath);
+                    dependencies.add(new URL(jsBaseUrl, originalUrl).toExternalForm());
+                    Path jsSavedPath = Paths.get(session.localBasePath, jsBaseUrl.getHost(), jsBaseUrl.getPath().substring(1));
+                    Path resourceSavedPath = Paths.get(session.localBasePath, newRelativePath);
                     String finalRelativePath = jsSavedPath.getParent().relativize(resourceSavedPath).toString().replace('\\', '/');
 
                     // Replace the original URL with the new relative path, preserving original quotes
@@ -203,7 +519,7 @@ public class WebsiteDownloadService {
     }
 
 
-    private String parseAndDownloadCssResources(String cssContent, URL cssBaseUrl, String localBasePath) {
+    private String parseAndDownloadCssResources(String cssContent, URL cssBaseUrl, DownloadSession session, List<String> dependencies) {
         // Pattern to find url(...) declarations in CSS
         Pattern pattern = Pattern.compile("url\\((['\"]?)(.*?)\\1\\)");
         Matcher matcher = pattern.matcher(cssContent);
@@ -217,11 +533,12 @@ public class WebsiteDownloadService {
 
             try {
                 // Download the resource found inside url()
-                String newRelativePath = downloadResource(cssBaseUrl, originalUrl, localBasePath);
+                String newRelativePath = downloadResource(cssBaseUrl, originalUrl, session);
                 if (newRelativePath != null) {
+                    dependencies.add(new URL(cssBaseUrl, originalUrl).toExternalForm());
                     // Calculate the path of the downloaded resource relative to the CSS file's location
-                    Path cssSavedPath = Paths.get(localBasePath, cssBaseUrl.getHost(), cssBaseUrl.getPath().substring(1));
-                    Path resourceSavedPath = Paths.get(localBasePath, newRelativePath);
+                    Path cssSavedPath = Paths.get(session.localBasePath, cssBaseUrl.getHost(), cssBaseUrl.getPath().substring(1));
+                    Path resourceSavedPath = Paths.get(session.localBasePath, newRelativePath);
                     String finalRelativePath = cssSavedPath.getParent().relativize(resourceSavedPath).toString().replace('\\', '/');
 
                     // Replace the original URL with the new relative path
@@ -275,4 +592,19 @@ public class WebsiteDownloadService {
         }
         return contentList;
     }
+
+    /**
+     * State of one download: the output being written and its transfer statistics.
+     */
+    private static final class DownloadSession {
+        private final String localBasePath;
+        private final DownloadStats stats = new DownloadStats();
+        private WarcWriter warcWriter;
+        private SiteZipWriter zipWriter;
+        private DownloadManifest manifest;
+
+        private DownloadSession(String localBasePath) {
+            this.localBasePath = localBasePath;
+        }
+    }
 }